@@ -21,11 +21,16 @@ import java.util.Comparator;
 
 import org.apache.commons.lang.Validate;
 
-public final class ConfigurableFileComparator implements Comparator<File> {
+public final class ConfigurableFileComparator implements Comparator<FileEntry> {
 
 	private final HasParentDirectory delegate;
 
-	private SortCriteria criteria = SortCriteria.NAME;
+	private SortCriteria criteria = SortCriteria.NATURAL_NAME;
+
+	/**
+	 * The composite order derived from the current sort criteria.
+	 */
+	private SortOrder sortOrder = criteria.getSortOrder();
 
 	private boolean ascending = true;
 
@@ -41,6 +46,7 @@ public final class ConfigurableFileComparator implements Comparator<File> {
 
 		this.delegate = delegate;
 		this.criteria = criteria;
+		this.sortOrder = criteria.getSortOrder();
 	}
 
 	public boolean isAscending() {
@@ -59,20 +65,27 @@ public final class ConfigurableFileComparator implements Comparator<File> {
 		Validate.notNull(criteria, "The given sort criteria is null");
 
 		this.criteria = criteria;
+		this.sortOrder = criteria.getSortOrder();
+	}
+
+	public SortOrder getSortOrder() {
+		return sortOrder;
 	}
 
 	@Override
-	public int compare(File f1, File f2) {
+	public int compare(FileEntry f1, FileEntry f2) {
 		// The parent directory always comes first
-		if (f1.isDirectory() && f1.equals(this.delegate.getParentDirectory())) {
+		final File parentDir = this.delegate.getParentDirectory();
+
+		if (f1.isDirectory() && f1.getFile().equals(parentDir)) {
 			return -1;
 		}
-		if (f2.isDirectory() && f2.equals(this.delegate.getParentDirectory())) {
+		if (f2.isDirectory() && f2.getFile().equals(parentDir)) {
 			return +1;
 		}
 
 		// Compare the 2 files according to the current sort criteria
-		final int result = criteria.compare(f1, f2);
+		final int result = sortOrder.compare(f1, f2);
 
 		return ascending ? result : -1 * result;
 	}
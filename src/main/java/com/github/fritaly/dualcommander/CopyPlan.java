@@ -0,0 +1,343 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.Validate;
+
+/**
+ * Plan of a copy of files & directories to a target directory. The sources
+ * are walked once (see {@link #build()}) to list the steps of the copy (the
+ * directories to create & the files to copy with their sizes, the parents
+ * before their children) while the user confirms the copy. The copy is then
+ * executed from the same steps (see {@link #execute()}) once the free space of
+ * the target's file store has been checked, so a copy which doesn't fit is
+ * rejected before any byte is copied.
+ * <p>
+ * The symbolic links aren't followed, they're copied as links. The files &
+ * directories keep their last modification date. The existing target files
+ * are overwritten.
+ * <p>
+ * The progress of the build (see {@link ScanProgress}) can be read from any
+ * thread.
+ *
+ * @author francois_ritaly
+ */
+public final class CopyPlan implements ScanProgress {
+
+	/**
+	 * A step of the plan: a directory to create or a file to copy.
+	 */
+	public static final class Step {
+
+		private final File source;
+
+		private final File target;
+
+		private final boolean directory;
+
+		private final long size;
+
+		private final long lastModified;
+
+		Step(File source, File target, boolean directory, long size, long lastModified) {
+			this.source = source;
+			this.target = target;
+			this.directory = directory;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		public File getSource() {
+			return source;
+		}
+
+		public File getTarget() {
+			return target;
+		}
+
+		public boolean isDirectory() {
+			return directory;
+		}
+
+		/**
+		 * Returns the size of the file to copy (zero for a directory).
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s[%s -> %s, %d bytes]", getClass().getSimpleName(), source, target, size);
+		}
+	}
+
+	/**
+	 * Walks a source and lists its steps.
+	 */
+	private final class Walker extends TreeWalker {
+
+		/**
+		 * The source being walked & the path it's copied to.
+		 */
+		private Path source, target;
+
+		Walker() {
+			// Don't follow the links & copy all the hard links
+			super(false, false);
+		}
+
+		private void walkSource(File source) {
+			this.source = source.toPath();
+			this.target = new File(targetDirectory, source.getName()).toPath();
+
+			walk(this.source);
+		}
+
+		private File getTarget(Path path) {
+			return target.resolve(source.relativize(path)).toFile();
+		}
+
+		@Override
+		protected void directoryEntered(Path dir, BasicFileAttributes attrs) throws IOException {
+			steps.add(new Step(dir.toFile(), getTarget(dir), true, 0, attrs.lastModifiedTime().toMillis()));
+
+			directories++;
+		}
+
+		@Override
+		protected void fileVisited(Path file, BasicFileAttributes attrs) throws IOException {
+			steps.add(new Step(file.toFile(), getTarget(file), false, attrs.size(), attrs.lastModifiedTime().toMillis()));
+
+			files++;
+			totalSize += attrs.size();
+		}
+	}
+
+	private final List<File> sources;
+
+	private final File targetDirectory;
+
+	private final List<Step> steps = new ArrayList<>();
+
+	private final Walker walker = new Walker();
+
+	/**
+	 * The progress of the build (written by the building thread only).
+	 */
+	private volatile int files, directories;
+
+	private volatile long totalSize;
+
+	private volatile boolean built, failed;
+
+	/**
+	 * Creates the plan of a copy of the given sources into the given
+	 * directory. The plan must then be built.
+	 *
+	 * @param sources
+	 *            the files & directories to copy. Can't be null.
+	 * @param targetDirectory
+	 *            the directory to copy the sources into. Can't be null.
+	 */
+	public CopyPlan(Collection<File> sources, File targetDirectory) {
+		Validate.notNull(sources, "The given collection of sources is null");
+		Validate.notNull(targetDirectory, "The given target directory is null");
+
+		this.sources = new ArrayList<>(sources);
+		this.targetDirectory = targetDirectory;
+	}
+
+	/**
+	 * Walks the sources and lists the steps of the copy. To be called once
+	 * (usually from a background thread). The sources which can't be read are
+	 * reported by {@link #getErrors()}.
+	 */
+	public void build() {
+		Validate.isTrue(!built, "The plan has already been built");
+
+		try {
+			for (File source : sources) {
+				walker.walkSource(source);
+
+				if (walker.isStopped()) {
+					return;
+				}
+			}
+		} catch (RuntimeException | Error e) {
+			this.failed = true;
+
+			throw e;
+		}
+
+		this.built = true;
+	}
+
+	/**
+	 * Stops the build in progress. Can be called from any thread.
+	 */
+	public void cancel() {
+		walker.stop();
+	}
+
+	public boolean isCancelled() {
+		return walker.isStopped();
+	}
+
+	@Override
+	public boolean isDone() {
+		return built;
+	}
+
+	@Override
+	public boolean isFailed() {
+		return failed;
+	}
+
+	@Override
+	public int getFiles() {
+		return files;
+	}
+
+	@Override
+	public int getDirectories() {
+		return directories;
+	}
+
+	@Override
+	public long getTotalSize() {
+		return totalSize;
+	}
+
+	public File getTargetDirectory() {
+		return targetDirectory;
+	}
+
+	/**
+	 * Returns the steps of the copy in execution order.
+	 *
+	 * @return an unmodifiable list. Never returns null.
+	 */
+	public List<Step> getSteps() {
+		Validate.isTrue(built, "The plan hasn't been built");
+
+		return Collections.unmodifiableList(steps);
+	}
+
+	/**
+	 * Returns the first errors which occurred when building the plan (the
+	 * entries in error aren't part of the plan).
+	 */
+	public Map<Path, IOException> getErrors() {
+		return walker.getErrors();
+	}
+
+	@Override
+	public int getErrorCount() {
+		return walker.getErrorCount();
+	}
+
+	/**
+	 * Checks whether the target's file store has enough usable space for the
+	 * copy. The space used by the target files to overwrite is only taken
+	 * into account if the copy doesn't fit otherwise.
+	 *
+	 * @throws IOException
+	 *             if there isn't enough space or the file store can't be
+	 *             queried.
+	 */
+	public void checkFreeSpace() throws IOException {
+		Validate.isTrue(built, "The plan hasn't been built");
+
+		final FileStore store = Files.getFileStore(targetDirectory.toPath());
+
+		long available = store.getUsableSpace();
+
+		if (available >= totalSize) {
+			return;
+		}
+
+		// Count the space released by the files overwritten
+		for (Step step : steps) {
+			if (!step.directory) {
+				final Path target = step.target.toPath();
+
+				if (Files.isRegularFile(target, LinkOption.NOFOLLOW_LINKS)) {
+					available += Files.size(target);
+				}
+			}
+		}
+
+		if (available < totalSize) {
+			throw new IOException(String.format("Not enough space on %s to copy %s (%s available)", store,
+					FileUtils.byteCountToDisplaySize(totalSize), FileUtils.byteCountToDisplaySize(available)));
+		}
+	}
+
+	/**
+	 * Checks the free space then executes the steps of the copy. The copy
+	 * stops at the first error.
+	 *
+	 * @throws IOException
+	 *             if there isn't enough space or a step fails.
+	 */
+	public void execute() throws IOException {
+		checkFreeSpace();
+
+		for (Step step : steps) {
+			final Path target = step.target.toPath();
+
+			if (step.directory) {
+				Files.createDirectories(target);
+			} else {
+				Files.copy(step.source.toPath(), target, StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+			}
+		}
+
+		// The directories get their date back once their content is copied
+		for (int i = steps.size() - 1; i >= 0; i--) {
+			final Step step = steps.get(i);
+
+			if (step.directory) {
+				Files.setLastModifiedTime(step.target.toPath(), FileTime.fromMillis(step.lastModified));
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%d files, %d directories, %d bytes -> %s]", getClass().getSimpleName(), files,
+				directories, totalSize, targetDirectory);
+	}
+}
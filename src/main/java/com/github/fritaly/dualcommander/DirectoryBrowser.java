@@ -19,6 +19,9 @@ package com.github.fritaly.dualcommander;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Font;
+import java.awt.Point;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.FocusEvent;
 import java.awt.event.FocusListener;
 import java.awt.event.KeyEvent;
@@ -27,13 +30,27 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.io.File;
 import java.io.IOException;
-import java.text.DateFormat;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
@@ -43,7 +60,11 @@ import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.border.BevelBorder;
+import javax.swing.border.Border;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import javax.swing.event.ListSelectionEvent;
@@ -58,22 +79,62 @@ import org.apache.commons.lang.Validate;
 import org.apache.log4j.Logger;
 
 import com.github.fritaly.dualcommander.event.ChangeEventSource;
-import com.github.fritaly.dualcommander.event.ChangeEventSupport;
+import com.github.fritaly.dualcommander.event.ChangeEventBus;
 import com.github.fritaly.dualcommander.event.ColumnEvent;
 import com.github.fritaly.dualcommander.event.ColumnEventHelper;
 import com.github.fritaly.dualcommander.event.ColumnEventListener;
+import com.github.fritaly.dualcommander.event.DirectoryChangeEvent;
+import com.github.fritaly.dualcommander.event.DirectoryChangeListener;
 
 
 public class DirectoryBrowser extends JPanel implements ListSelectionListener, ChangeEventSource, KeyListener, MouseListener,
-		HasParentDirectory, FocusListener, ColumnEventListener {
+		HasParentDirectory, FocusListener, ColumnEventListener, DirectoryChangeListener {
+
+	/**
+	 * Beyond this number of changes, the directory is listed again instead of
+	 * being updated incrementally.
+	 */
+	private static final int MAX_INCREMENTAL_CHANGES = 256;
+
+	/**
+	 * Delay (in ms) the selection must rest on a directory before it's
+	 * prefetched.
+	 */
+	private static final int PREFETCH_DELAY = 300;
+
+	/**
+	 * Delay (in ms) after which a listing which doesn't progress anymore is
+	 * reported as not responding.
+	 */
+	private static final int LISTING_TIMEOUT = 5000;
 
 	private static final Color EVEN_ROW = Color.WHITE;
 
 	private static final Color ODD_ROW = Color.decode("#DDDDFF");
 
-	private final class FileNameRenderer extends DefaultTableCellRenderer {
+	private static final Color SELECTED_EVEN_ROW = Color.decode("#FFC57A");
 
-		private static final long serialVersionUID = -896199602148007012L;
+	private static final Color SELECTED_ODD_ROW = Color.decode("#F5AC4C");
+
+	private static final Color FILE_FOREGROUND = Color.decode("#555555");
+
+	private static final Border CELL_BORDER = Utils.createEmptyBorder(2);
+
+	/**
+	 * Base class for the cell renderers. The colors, border and fonts are
+	 * shared and the texts come from the table model's render cache so that
+	 * painting a cell doesn't allocate anything.
+	 */
+	private abstract class EntryRenderer extends DefaultTableCellRenderer {
+
+		private static final long serialVersionUID = 4571271364466221950L;
+
+		/**
+		 * The font the bold font was derived from.
+		 */
+		private Font baseFont;
+
+		private Font boldFont;
 
 		@Override
 		public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row,
@@ -81,423 +142,2006 @@ public class DirectoryBrowser extends JPanel implements ListSelectionListener, C
 
 			final JLabel component = (JLabel) super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
 
-			final File file = (File) value;
+			final FileEntry entry = (FileEntry) value;
+
+			if (isSelected) {
+				setBackground((row % 2 == 0) ? SELECTED_EVEN_ROW : SELECTED_ODD_ROW);
+			} else {
+				setBackground((row % 2 == 0) ? EVEN_ROW : ODD_ROW);
+			}
+
+			setForeground(FILE_FOREGROUND);
+			setBorder(CELL_BORDER);
+
+			render(component, entry, row, column);
+
+			return component;
+		}
+
+		@Override
+		protected void setValue(Object value) {
+			// The text is set by the sub-classes
+		}
+
+		/**
+		 * Returns the bold version of the given font (cached).
+		 */
+		protected Font getBoldFont(Font font) {
+			if (font != baseFont) {
+				this.baseFont = font;
+				this.boldFont = Utils.getBoldFont(font);
+			}
+
+			return boldFont;
+		}
+
+		protected abstract void render(JLabel component, FileEntry entry, int row, int column);
+	}
+
+	private final class FileNameRenderer extends EntryRenderer {
+
+		private static final long serialVersionUID = -896199602148007012L;
 
-			if (file.isDirectory()) {
+		@Override
+		protected void render(JLabel component, FileEntry entry, int row, int column) {
+			if (entry.isDirectory()) {
 				// Render the directories with a bold font
-				final Font font = component.getFont();
+				component.setFont(getBoldFont(component.getFont()));
+				component.setForeground(Color.BLACK);
+			}
+
+			// The parent directory entry is rendered as ".."
+			component.setText(tableModel.getText(row, column));
+		}
+	}
 
-				component.setFont(new Font(font.getName(), Font.BOLD, component.getFont().getSize()));
+	private final class FileTypeRenderer extends EntryRenderer {
 
-				if (file.equals(getParentDirectory())) {
-					// Render the parent directory entry as ".."
-					component.setText("[..]");
-				} else {
-					component.setText(String.format("[%s]", file.getName()));
-				}
+		private static final long serialVersionUID = -1456922668251532841L;
+
+		@Override
+		protected void render(JLabel component, FileEntry entry, int row, int column) {
+			component.setIcon(entry.isDirectory() ? Icons.FOLDER_ICON : null);
+			component.setText("");
+		}
+	}
+
+	private final class FileSizeRenderer extends EntryRenderer {
+
+		private static final long serialVersionUID = -5094024636812268688L;
+
+		@Override
+		protected void render(JLabel component, FileEntry entry, int row, int column) {
+			if (entry.isDirectory()) {
+				// Render the directories with a bold font
+				component.setFont(getBoldFont(component.getFont()));
+				component.setForeground(Color.BLACK);
+				component.setHorizontalAlignment(entry.isSizeComputed() ? JLabel.RIGHT : JLabel.LEADING);
 			} else {
-				component.setText(file.getName());
+				component.setHorizontalAlignment(JLabel.RIGHT);
 			}
 
-			if (isSelected) {
-				setBackground((row % 2 == 0) ? Color.decode("#FFC57A") : Color.decode("#F5AC4C"));
+			component.setText(tableModel.getText(row, column));
+		}
+	}
+
+	private final class LastUpdateRenderer extends EntryRenderer {
+
+		private static final long serialVersionUID = -1888924791239159846L;
+
+		@Override
+		protected void render(JLabel component, FileEntry entry, int row, int column) {
+			// The last modified date isn't displayed for the parent directory
+			component.setText(tableModel.getText(row, column));
+		}
+	}
+
+	private final class TableHeaderRenderer extends JLabel implements TableCellRenderer {
+
+		private static final long serialVersionUID = 596061491019164527L;
+
+		@Override
+		public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row,
+				int column) {
+
+			if (tableModel.getSortCriteria().getColumn() == column) {
+				setIcon(!tableModel.isSortAscending() ? Icons.TRIANGLE_UP_ICON : Icons.TRIANGLE_DOWN_ICON);
 			} else {
-				setBackground((row % 2 == 0) ? EVEN_ROW : ODD_ROW);
+				setIcon(null);
+			}
+
+			// Display the text on the left and the icon on the right
+			setHorizontalTextPosition(SwingConstants.LEFT);
+			setText(value.toString());
+			setBorder(BorderFactory.createBevelBorder(BevelBorder.RAISED));
+
+			return this;
+		}
+	}
+
+	/**
+	 * Background task listing the entries of a directory. The directory is
+	 * streamed and, while it's being listed, only the first page of entries
+	 * (according to the current sort order) is published to the table model.
+	 * That page is maintained with a bounded heap so it costs O(log k) per
+	 * entry. Once the directory is fully listed, the entries are sorted in the
+	 * background and the complete listing replaces the first page.
+	 */
+	private final class ListingWorker extends SwingWorker<DirectoryListing, DirectoryListing> {
+
+		/**
+		 * The number of entries displayed while the directory is being listed.
+		 */
+		private static final int FIRST_PAGE_SIZE = 512;
+
+		/**
+		 * Delay (in ms) between 2 updates of the first page.
+		 */
+		private static final long PUBLISH_DELAY = 100;
+
+		private final File directory;
+
+		private final boolean showHidden;
+
+		/**
+		 * The sort order (captured when the listing starts) used to select and
+		 * sort the first page then sort the complete listing.
+		 */
+		private final SortOrder sortOrder;
+
+		private final boolean ascending;
+
+		/**
+		 * The entry to auto-select once listed (can be null).
+		 */
+		private File pendingSelection;
+
+		/**
+		 * The entry automatically selected after the previous update (can be
+		 * null). Used to detect whether the user moved the selection.
+		 */
+		private File autoSelection;
+
+		/**
+		 * The number of entries listed so far.
+		 */
+		private volatile int count;
+
+		/**
+		 * The display order of the complete listing computed in the background.
+		 */
+		private int[] order;
+
+		/**
+		 * The (stale) listing displayed while the directory is listed again
+		 * (can be null).
+		 */
+		private final DirectoryListing snapshot;
+
+		/**
+		 * The date the listing last progressed. Read by the EDT to detect a
+		 * stalled file system.
+		 */
+		private volatile long lastProgress = System.currentTimeMillis();
+
+		/**
+		 * The names of the snapshot's entries deleted or modified since it was
+		 * taken (computed once the directory is listed).
+		 */
+		private Set<String> removed;
+
+		/**
+		 * The indices of the entries created or modified since the snapshot
+		 * was taken.
+		 */
+		private int[] added;
+
+		/**
+		 * The counts of the listing returned, computed in the background.
+		 */
+		private ListingCounts counts;
+
+		ListingWorker(File directory, boolean showHidden, File pendingSelection, DirectoryListing snapshot) {
+			this.directory = directory;
+			this.showHidden = showHidden;
+			this.pendingSelection = pendingSelection;
+			this.snapshot = snapshot;
+			this.sortOrder = tableModel.getSortOrder();
+			this.ascending = tableModel.isSortAscending();
+		}
+
+		@Override
+		protected DirectoryListing doInBackground() throws Exception {
+			// The directory may be being prefetched. The wait is bounded so
+			// that a stalled prefetch doesn't delay the listing (streamed
+			// below) and isn't reported as not responding
+			this.lastProgress = System.currentTimeMillis();
+
+			directoryCache.awaitPrefetch(directory, showHidden, IoExecutor.DEFAULT_TIMEOUT);
+
+			this.lastProgress = System.currentTimeMillis();
+
+			// A snapshot is always revalidated: the cached listing may be as
+			// stale as the snapshot (the directory wasn't watched in between)
+			final DirectoryListing cached = (snapshot == null) ? directoryCache.get(directory, showHidden) : null;
+
+			if (cached != null) {
+				// The directory didn't change since it was last listed
+				count = cached.size();
+
+				this.order = FileSorter.sort(cached, sortOrder, ascending);
+				this.counts = ListingCounts.of(cached);
+
+				if (logger.isDebugEnabled()) {
+					logger.debug(String.format("[%s] Reused cached listing of %s", getComponentLabel(),
+							directory.getAbsolutePath()));
+				}
+
+				return cached;
+			}
+
+			if (snapshot != null) {
+				// Display the snapshot at once while the directory is listed
+				// again. Even if the directory's date didn't change, the files
+				// may have been modified in place since the snapshot was taken
+				publish(snapshot.subset(FileSorter.sort(snapshot, sortOrder, ascending)));
+			}
+
+			// Read the date before listing the directory so that any change
+			// during the listing invalidates the cached listing
+			final long lastModified = directory.lastModified();
+
+			final Comparator<FileEntry> comparator = ascending ? sortOrder : Collections.reverseOrder(sortOrder);
+
+			// Max-heap whose head is the last entry of the first page
+			final PriorityQueue<FileEntry> firstPage = new PriorityQueue<>(FIRST_PAGE_SIZE + 1,
+					Collections.reverseOrder(comparator));
+
+			final DirectoryListing listing = new DirectoryListing(directory);
+
+			boolean changed = false;
+			long lastPublish = System.currentTimeMillis();
+
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath())) {
+				for (Path path : stream) {
+					if (isCancelled()) {
+						// The user navigated to another directory
+						return null;
+					}
+
+					this.lastProgress = System.currentTimeMillis();
+
+					final int index;
+
+					try {
+						// Capture the entry's attributes once and for all
+						index = listing.add(path, showHidden);
+					} catch (IOException e) {
+						logger.warn(String.format("[%s] Unable to read the attributes of %s", getComponentLabel(), path), e);
+
+						continue;
+					}
+
+					if (index < 0) {
+						// Hidden entry
+						continue;
+					}
+
+					count = listing.size();
+
+					final FileEntry entry = listing.getEntry(index);
+
+					if (firstPage.size() < FIRST_PAGE_SIZE) {
+						firstPage.add(entry);
+
+						changed = true;
+					} else if (comparator.compare(entry, firstPage.peek()) < 0) {
+						firstPage.poll();
+						firstPage.add(entry);
+
+						changed = true;
+					}
+
+					if ((snapshot == null) && changed && ((count == FIRST_PAGE_SIZE) || (System.currentTimeMillis() - lastPublish >= PUBLISH_DELAY))) {
+						// Publish the first page as soon as it's full, then
+						// periodically
+						publish(toListing(firstPage, comparator));
+
+						changed = false;
+						lastPublish = System.currentTimeMillis();
+					}
+				}
+			}
+
+			listing.trimToSize();
+
+			// Share the listing with the other browsers
+			directoryCache.put(listing, showHidden, lastModified);
+
+			// Sort the complete listing in the background
+			this.order = FileSorter.sort(listing, sortOrder, ascending);
+			this.counts = ListingCounts.of(listing);
+
+			if (logger.isDebugEnabled()) {
+				logger.debug(String.format("[%s] Listing of %s uses %d bytes per entry", getComponentLabel(),
+						directory.getAbsolutePath(), listing.getMemoryUsage() / Math.max(listing.size(), 1)));
+			}
+
+			if (snapshot != null) {
+				diff(listing);
 			}
 
-			setForeground(file.isDirectory() ? Color.BLACK : Color.decode("#555555"));
-			setBorder(Utils.createEmptyBorder(2));
+			return listing;
+		}
+
+		/**
+		 * Computes the differences between the snapshot and the given
+		 * (up-to-date) listing.
+		 */
+		private void diff(DirectoryListing listing) {
+			final Map<String, Integer> indices = new HashMap<>(snapshot.size() * 2);
+
+			for (int i = 0; i < snapshot.size(); i++) {
+				indices.put(snapshot.getName(i), i);
+			}
+
+			final Set<String> removed = new HashSet<>();
+			final int[] added = new int[listing.size()];
+
+			int addedCount = 0;
+
+			for (int i = 0; i < listing.size(); i++) {
+				final String name = listing.getName(i);
+				final Integer index = indices.remove(name);
+
+				if (index == null) {
+					// New entry
+					added[addedCount++] = i;
+				} else if ((snapshot.isDirectory(index) != listing.isDirectory(i))
+						|| ((snapshot.getSize(index) != listing.getSize(i)) && !isComputedSize(snapshot, index))
+						|| (snapshot.getLastModified(index) != listing.getLastModified(i))
+						|| (snapshot.isHidden(index) != listing.isHidden(i))) {
+
+					// Modified entry
+					removed.add(name);
+					added[addedCount++] = i;
+				}
+			}
+
+			// The remaining entries were deleted
+			removed.addAll(indices.keySet());
+
+			this.removed = removed;
+			this.added = Arrays.copyOf(added, addedCount);
+		}
+
+		/**
+		 * Tells whether the size of the given entry is the recursive size of a
+		 * directory (which can't be compared with the size listed).
+		 */
+		private boolean isComputedSize(DirectoryListing listing, int index) {
+			return listing.isDirectory(index) && listing.isSizeComputed(index);
+		}
+
+		/**
+		 * Returns a new listing containing the given entries in order.
+		 */
+		private DirectoryListing toListing(Collection<FileEntry> collection, Comparator<FileEntry> comparator) {
+			final List<FileEntry> list = new ArrayList<>(collection);
+
+			Collections.sort(list, comparator);
+
+			final int[] indices = new int[list.size()];
+
+			for (int i = 0; i < indices.length; i++) {
+				indices[i] = list.get(i).getIndex();
+			}
+
+			return list.get(0).getListing().subset(indices);
+		}
+
+		/**
+		 * Replaces the entries of the table model by the ones of the given
+		 * listing while preserving the selection.
+		 */
+		private void update(DirectoryListing listing, int[] order) {
+			// Preserve the current selection across the model change
+			final int selectedRow = table.getSelectedRow();
+			final File selectedFile = (selectedRow >= 0) ? tableModel.getFileAt(selectedRow) : null;
+
+			tableModel.setListing(listing, order);
+			tableModel.fireTableDataChanged();
+
+			if ((pendingSelection != null) && tableModel.contains(pendingSelection)) {
+				// Auto-select the directory we just left
+				select(pendingSelection);
+
+				pendingSelection = null;
+			} else if ((selectedFile != null) && !selectedFile.equals(autoSelection) && tableModel.contains(selectedFile)) {
+				// Preserve the entry selected by the user
+				select(selectedFile);
+			} else if (tableModel.size() > 1) {
+				// Auto-select the 1st entry (if there's one)
+				table.getSelectionModel().setSelectionInterval(1, 1);
+
+				autoSelection = tableModel.getFileAt(1);
+			}
+		}
+
+		@Override
+		protected void process(List<DirectoryListing> chunks) {
+			if (isCancelled() || (this != listingWorker)) {
+				// Obsolete results, ignore them
+				return;
+			}
+
+			// Only the most recent first page matters (already sorted)
+			final DirectoryListing page = chunks.get(chunks.size() - 1);
+
+			final int[] order = new int[page.size()];
+
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+
+			update(page, order);
+
+			if (snapshot != null) {
+				// The snapshot (e.g. retained by the history) is displayed
+				// with its selection & scroll position while revalidated
+				restoreState();
+			}
+
+			summary.setText(String.format("Loading ... %d entries", count));
+		}
+
+		@Override
+		protected void done() {
+			if (isCancelled() || (this != listingWorker)) {
+				return;
+			}
+
+			listingWorker = null;
+
+			// The directory may have responded after being reported as not
+			// responding
+			responseTimer.stop();
+			setResponding(true);
+
+			try {
+				final DirectoryListing listing = get();
+
+				listingCounts = counts;
+
+				if ((removed != null) && (tableModel.getListing().getDirectory() != null)
+						&& (removed.size() + added.length <= MAX_INCREMENTAL_CHANGES)) {
+
+					// The snapshot is displayed, only apply the differences
+					applyChanges(directory, removed, listing, added);
+
+					if (logger.isDebugEnabled()) {
+						logger.debug(String.format("[%s] Revalidated snapshot of %s (%d change(s))", getComponentLabel(),
+								directory.getAbsolutePath(), removed.size() + added.length));
+					}
+				} else {
+					update(listing, order);
+				}
+			} catch (Exception e) {
+				logger.error(String.format("[%s] Error when listing directory %s", getComponentLabel(),
+						directory.getAbsolutePath()), e);
+			}
+
+			if (!sortOrder.equals(tableModel.getSortOrder()) || (ascending != tableModel.isSortAscending())) {
+				// The sort order changed while the directory was being listed
+				tableModel.sort();
+				tableModel.fireTableDataChanged();
+			}
+
+			updateSummary();
+
+			if (logger.isDebugEnabled()) {
+				logger.debug(String.format("[%s] Listed %d entries in %s", getComponentLabel(), count,
+						directory.getAbsolutePath()));
+			}
+
+			restoreState();
+
+			computeFolderSizes(null);
+
+			// Apply the changes notified while the directory was being listed
+			applyPendingChanges();
+		}
+	}
+
+	/**
+	 * Background task reading the attributes of the entries which changed in
+	 * the current directory. The changes are then applied to the table model
+	 * row by row (without listing the directory again).
+	 */
+	private final class ChangeWorker extends SwingWorker<DirectoryListing, Void> {
+
+		private final File directory;
+
+		private final Set<String> names;
+
+		private final boolean showHidden;
+
+		ChangeWorker(File directory, Set<String> names, boolean showHidden) {
+			this.directory = directory;
+			this.names = names;
+			this.showHidden = showHidden;
+		}
+
+		@Override
+		protected DirectoryListing doInBackground() throws Exception {
+			// The entries deleted won't be part of the returned listing
+			final DirectoryListing listing = new DirectoryListing(directory, names.size());
+
+			for (String name : names) {
+				final File file = new File(directory, name);
+
+				if (!file.exists()) {
+					continue;
+				}
+
+				try {
+					listing.add(file.toPath(), showHidden);
+				} catch (IOException e) {
+					// The entry was probably deleted in the mean time
+					if (logger.isDebugEnabled()) {
+						logger.debug(String.format("[%s] Unable to read the attributes of %s", getComponentLabel(), file));
+					}
+				}
+			}
+
+			return listing;
+		}
+
+		@Override
+		protected void done() {
+			if (isCancelled() || (this != changeWorker)) {
+				return;
+			}
+
+			changeWorker = null;
+
+			final DirectoryListing changes;
+
+			try {
+				changes = get();
+			} catch (Exception e) {
+				logger.error(String.format("[%s] Error when updating directory %s", getComponentLabel(),
+						directory.getAbsolutePath()), e);
+
+				return;
+			}
+
+			final int[] indices = new int[changes.size()];
+
+			for (int i = 0; i < indices.length; i++) {
+				indices[i] = i;
+			}
+
+			applyChanges(directory, names, changes, indices);
+
+			computeFolderSizes(names);
+
+			updateSummary();
+
+			if (logger.isDebugEnabled()) {
+				logger.debug(String.format("[%s] Applied %d change(s) to %s", getComponentLabel(), names.size(),
+						directory.getAbsolutePath()));
+			}
+
+			applyPendingChanges();
+		}
+	}
+
+	/**
+	 * A directory resolved in the background.
+	 */
+	private static final class ResolvedDirectory {
+
+		private final File canonicalDirectory;
+
+		private final File parentDirectory;
+
+		private final FileEntry parentEntry;
+
+		ResolvedDirectory(File canonicalDirectory, File parentDirectory, FileEntry parentEntry) {
+			this.canonicalDirectory = canonicalDirectory;
+			this.parentDirectory = parentDirectory;
+			this.parentEntry = parentEntry;
+		}
+	}
+
+	/**
+	 * Background task validating the given directory and resolving its
+	 * canonical form & its parent. Once resolved, the directory is listed.
+	 */
+	private final class DirectoryResolver extends SwingWorker<ResolvedDirectory, Void> {
+
+		private final File directory;
+
+		/**
+		 * The directory browsed before (can be null).
+		 */
+		private final File previousDirectory;
+
+		private final DirectoryListing snapshot;
+
+		/**
+		 * The date the resolution started. Read by the EDT to detect a stalled
+		 * file system.
+		 */
+		private final long startTime = System.currentTimeMillis();
+
+		DirectoryResolver(File directory, File previousDirectory, DirectoryListing snapshot) {
+			this.directory = directory;
+			this.previousDirectory = previousDirectory;
+			this.snapshot = snapshot;
+		}
+
+		@Override
+		protected ResolvedDirectory doInBackground() throws Exception {
+			Validate.isTrue(directory.exists(), String.format("The given directory '%s' doesn't exist", directory.getAbsolutePath()));
+			Validate.isTrue(directory.isDirectory(), String.format("The given path '%s' doesn't denote a directory", directory.getAbsolutePath()));
+
+			final File canonicalDirectory = directory.getCanonicalFile();
+			final File parentDir = canonicalDirectory.getParentFile();
+
+			if ((parentDir == null) || !parentDir.exists()) {
+				return new ResolvedDirectory(canonicalDirectory, null, null);
+			}
+
+			FileEntry parentEntry = null;
+
+			try {
+				parentEntry = FileEntry.of(parentDir);
+			} catch (IOException e) {
+				logger.warn(String.format("[%s] Unable to read the attributes of %s", getComponentLabel(), parentDir), e);
+			}
+
+			return new ResolvedDirectory(canonicalDirectory, parentDir, parentEntry);
+		}
+
+		@Override
+		protected void done() {
+			if (isCancelled() || (this != directoryResolver)) {
+				return;
+			}
+
+			directoryResolver = null;
+
+			responseTimer.stop();
+
+			final ResolvedDirectory resolved;
+
+			try {
+				resolved = get();
+			} catch (InterruptedException | ExecutionException e) {
+				final Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+
+				logger.warn(String.format("[%s] Unable to browse %s: %s", getComponentLabel(),
+						directory.getAbsolutePath(), cause.getMessage()));
+
+				restoredSelection = null;
+				restoredViewPosition = null;
+
+				// Return to the previous directory (or to the home directory)
+				final File home = new File(System.getProperty("user.home"));
+
+				if ((previousDirectory != null) && !previousDirectory.equals(directory)) {
+					setDirectory(previousDirectory, null);
+				} else if (!home.equals(directory)) {
+					setDirectory(home, null);
+				} else {
+					setResponding(true);
+
+					summary.setText(cause.getMessage());
+				}
+
+				return;
+			}
+
+			setResponding(true);
+
+			list(resolved, previousDirectory, snapshot);
+		}
+	}
+
+	/**
+	 * The number of folders & files of a listing and the total size of its
+	 * files. Computed in the background then updated incrementally as the
+	 * changes are applied so that the summary is refreshed in constant time.
+	 */
+	private static final class ListingCounts {
+
+		private int folders, files;
+
+		private long totalSize;
+
+		static ListingCounts of(DirectoryListing listing) {
+			final ListingCounts counts = new ListingCounts();
+
+			for (int i = 0; i < listing.size(); i++) {
+				counts.add(listing.isDirectory(i), listing.getSize(i));
+			}
+
+			return counts;
+		}
+
+		void add(boolean directory, long size) {
+			if (directory) {
+				folders++;
+			} else {
+				files++;
+				totalSize += size;
+			}
+		}
+
+		void remove(boolean directory, long size) {
+			if (directory) {
+				folders--;
+			} else {
+				files--;
+				totalSize -= size;
+			}
+		}
+	}
+
+	/**
+	 * The recursive size computed for a directory.
+	 */
+	private static final class FolderSize {
+
+		private final FileEntry entry;
+
+		private final long size;
+
+		FolderSize(FileEntry entry, long size) {
+			this.entry = entry;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Background task computing the recursive sizes of directories with the
+	 * {@link DirectorySizeIndex}. The sizes already indexed are displayed
+	 * first then each directory is revalidated (only the subtrees which changed
+	 * are listed again).
+	 */
+	private final class FolderSizeWorker extends SwingWorker<Integer, FolderSize> {
+
+		private final FileEntry[] entries;
+
+		private final File[] directories;
+
+		FolderSizeWorker(List<FileEntry> entries) {
+			this.entries = entries.toArray(new FileEntry[entries.size()]);
+			this.directories = new File[this.entries.length];
+
+			// The files are resolved in the event dispatch thread
+			for (int i = 0; i < this.entries.length; i++) {
+				this.directories[i] = this.entries[i].getFile();
+			}
+		}
+
+		@Override
+		protected Integer doInBackground() throws Exception {
+			final long[] sizes = new long[directories.length];
+
+			for (int i = 0; i < directories.length; i++) {
+				final DirectorySizeIndex.DirectorySize size = sizeIndex.get(directories[i]);
+
+				sizes[i] = (size != null) ? size.getSize() : -1;
+
+				if (size != null) {
+					publish(new FolderSize(entries[i], size.getSize()));
+				}
+			}
+
+			int count = 0;
+
+			for (int i = 0; (i < directories.length) && !isCancelled(); i++) {
+				try {
+					final long size = sizeIndex.compute(directories[i]).getSize();
+
+					if (size != sizes[i]) {
+						publish(new FolderSize(entries[i], size));
+					}
+
+					count++;
+				} catch (InterruptedIOException e) {
+					// The task was cancelled
+					break;
+				} catch (IOException e) {
+					if (logger.isDebugEnabled()) {
+						logger.debug(String.format("[%s] Unable to compute the size of %s: %s", getComponentLabel(),
+								directories[i], e.getMessage()));
+					}
+				}
+			}
+
+			return count;
+		}
+
+		@Override
+		protected void process(List<FolderSize> chunks) {
+			if (isCancelled() || !folderSizeWorkers.contains(this)) {
+				// Obsolete results, ignore them
+				return;
+			}
+
+			for (FolderSize chunk : chunks) {
+				tableModel.setDirectorySize(chunk.entry, chunk.size);
+			}
+
+			tableModel.fireSizesChanged();
+		}
+
+		@Override
+		protected void done() {
+			if (isCancelled() || !folderSizeWorkers.remove(this)) {
+				return;
+			}
+
+			if (tableModel.getSortCriteria() == SortCriteria.SIZE) {
+				// The directories were sorted before their size was known
+				restoredSelection = getSelection();
+				restoredViewPosition = scrollPane.getViewport().getViewPosition();
+
+				tableModel.sort();
+				tableModel.fireTableDataChanged();
+
+				restoreState();
+			}
+
+			if (logger.isDebugEnabled()) {
+				try {
+					logger.debug(String.format("[%s] Computed the size of %d director(ies) in %s", getComponentLabel(),
+							get(), getDirectory().getAbsolutePath()));
+				} catch (Exception e) {
+					logger.debug(String.format("[%s] Error when computing the directory sizes", getComponentLabel()), e);
+				}
+			}
+		}
+	}
+
+	private static final long serialVersionUID = 411590029543053088L;
+
+	private final Logger logger = Logger.getLogger(this.getClass());
+
+	private File directory;
+
+	/**
+	 * The canonical form of {@link #directory}. Resolved once per navigation
+	 * since it's needed for every comparison when sorting the entries and
+	 * every time a cell is painted.
+	 */
+	private File canonicalDirectory;
+
+	/**
+	 * The (canonical) parent directory of {@link #directory} or null if the
+	 * directory has no parent. Resolved once per navigation.
+	 */
+	private File parentDirectory;
+
+	private final FileTableModel tableModel;
+
+	private final JTable table;
+
+	private final JButton directoryButton = new JButton(Icons.FOLDER_ICON);
+
+	/**
+	 * Delivers the change events on the EDT (coalesced).
+	 */
+	private final ChangeEventBus eventBus = new ChangeEventBus();
+
+	private final UserPreferences preferences;
+
+	private final DirectoryCache directoryCache;
+
+	private final DirectoryWatcher directoryWatcher;
+
+	private final IoExecutor ioExecutor;
+
+	private final DirectorySizeIndex sizeIndex;
+
+	/**
+	 * The directory currently watched for changes (can be null).
+	 */
+	private File watchedDirectory;
+
+	private final JLabel summary;
+
+	/**
+	 * The summary of the directory's entries (displayed when nothing is
+	 * selected).
+	 */
+	private String listingSummary = " ";
+
+	/**
+	 * The counts of the entries listed (used to build the summary).
+	 */
+	private ListingCounts listingCounts = new ListingCounts();
+
+	private final SelectionTracker selectionTracker;
+
+	/**
+	 * The background task resolving the current directory (null once
+	 * resolved).
+	 */
+	private DirectoryResolver directoryResolver;
+
+	/**
+	 * The background task listing the current directory (null when the
+	 * listing is complete).
+	 */
+	private ListingWorker listingWorker;
+
+	/**
+	 * The background task applying changes to the current directory (null
+	 * when there's none).
+	 */
+	private ChangeWorker changeWorker;
+
+	/**
+	 * The tasks computing the sizes of the directories displayed.
+	 */
+	private final Set<FolderSizeWorker> folderSizeWorkers = new HashSet<>();
+
+	/**
+	 * The names of the entries changed which remain to be applied.
+	 */
+	private final Set<String> pendingChanges = new HashSet<>();
+
+	/**
+	 * Whether some changes were lost and the directory must be listed again.
+	 */
+	private boolean pendingOverflow;
+
+	/**
+	 * Whether the browser is displayed (selected tab). An inactive browser
+	 * defers the listing of its directory until it's activated.
+	 */
+	private boolean active;
+
+	/**
+	 * Whether the directory must be listed again once the browser is
+	 * activated.
+	 */
+	private boolean dirty;
+
+	/**
+	 * The snapshot to display when the deferred listing starts (can be null).
+	 */
+	private DirectoryListing deferredSnapshot;
+
+	/**
+	 * The date the browser was last deactivated.
+	 */
+	private long deactivationTime = System.currentTimeMillis();
+
+	/**
+	 * Whether the browser released its listing while inactive.
+	 */
+	private boolean hibernated;
+
+	/**
+	 * The selection & scroll position to restore once the directory is listed
+	 * (saved when the browser was hibernated or navigating the history).
+	 */
+	private List<File> restoredSelection;
+
+	private Point restoredViewPosition;
+
+	private final NavigationHistory history = new NavigationHistory();
+
+	private final JScrollPane scrollPane;
+
+	/**
+	 * Timer prefetching the directory selected once the selection rests on it.
+	 */
+	private final Timer prefetchTimer;
+
+	/**
+	 * The prefetch of the selected directory (can be null).
+	 */
+	private Future<?> prefetch;
+
+	/**
+	 * Timer checking periodically whether the listing in progress is stalled.
+	 */
+	private final Timer responseTimer;
+
+	/**
+	 * Placeholder displayed instead of the entries while the directory isn't
+	 * responding.
+	 */
+	private final JPanel notRespondingPanel;
+
+	private final JLabel notRespondingLabel;
+
+	private final JButton retryButton;
+
+	/**
+	 * Whether the directory isn't responding.
+	 */
+	private boolean notResponding;
+
+	public DirectoryBrowser(UserPreferences preferences, DirectoryCache directoryCache, DirectoryWatcher directoryWatcher,
+			IoExecutor ioExecutor, DirectorySizeIndex sizeIndex, File directory) {
+
+		this(preferences, directoryCache, directoryWatcher, ioExecutor, sizeIndex, directory, null, true);
+	}
+
+	/**
+	 * Creates a browser displaying the given snapshot while the directory is
+	 * being listed.
+	 *
+	 * @param snapshot
+	 *            a (possibly stale) listing of the directory. Can be null.
+	 * @param active
+	 *            whether the browser is displayed. If not, the directory will
+	 *            only be listed once the browser is activated.
+	 */
+	public DirectoryBrowser(UserPreferences preferences, DirectoryCache directoryCache, DirectoryWatcher directoryWatcher,
+			IoExecutor ioExecutor, DirectorySizeIndex sizeIndex, File directory, DirectoryListing snapshot, boolean active) {
+
+		Validate.notNull(preferences, "The given user preferences are null");
+		Validate.notNull(directoryCache, "The given directory cache is null");
+		Validate.notNull(directoryWatcher, "The given directory watcher is null");
+		Validate.notNull(ioExecutor, "The given I/O executor is null");
+		Validate.notNull(sizeIndex, "The given directory size index is null");
+		Validate.notNull(directory, "The given directory is null");
+
+		// The directory is validated in the background by setDirectory(File)
+		this.preferences = preferences;
+		this.directoryCache = directoryCache;
+		this.directoryWatcher = directoryWatcher;
+		this.ioExecutor = ioExecutor;
+		this.sizeIndex = sizeIndex;
+		this.active = active;
+
+		// Layout, columns & rows
+		setLayout(new MigLayout("insets 0px", "[grow]", "[]1[grow]1[]"));
+
+		this.tableModel = new FileTableModel(this);
+
+		this.table = new JTable(tableModel);
+		this.table.setBackground(Utils.getDefaultBackgroundColor());
+		this.table.addKeyListener(this);
+		this.table.addMouseListener(this);
+		this.table.addFocusListener(this);
+		this.table.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+		this.table.getSelectionModel().addListSelectionListener(this);
+
+		// Track the selection incrementally, the listeners are notified once
+		// per burst of selection events
+		this.selectionTracker = new SelectionTracker(tableModel, table.getSelectionModel());
+		this.selectionTracker.addChangeListener(new ChangeListener() {
+			@Override
+			public void stateChanged(ChangeEvent e) {
+				updateSelectionSummary();
+
+				// Propagate the event
+				fireChangeEvent();
+			}
+		});
+
+		// Listen to column event resize events
+		final ColumnEventHelper eventHelper = new ColumnEventHelper(this);
+
+		this.table.getColumnModel().addColumnModelListener(eventHelper);
+		this.table.getTableHeader().addMouseListener(eventHelper);
+
+		// Render the table headers with a bold font
+		this.table.getTableHeader().setFont(Utils.getBoldFont(this.table.getTableHeader().getFont()));
+		this.table.getTableHeader().setBackground(Utils.getDefaultBackgroundColor());
+		this.table.getTableHeader().setDefaultRenderer(new TableHeaderRenderer());
+		this.table.getTableHeader().addMouseListener(this);
+
+		final TableColumn typeColumn = this.table.getColumn(FileTableModel.COLUMN_TYPE);
+		typeColumn.setCellRenderer(new FileTypeRenderer());
+		typeColumn.setResizable(false);
+		typeColumn.setHeaderValue("");
+		typeColumn.setMaxWidth(Icons.FOLDER_ICON.getIconWidth() + 5);
+
+		final TableColumn fileColumn = this.table.getColumn(FileTableModel.COLUMN_NAME);
+		fileColumn.setCellRenderer(new FileNameRenderer());
+		fileColumn.setResizable(true);
+
+		final TableColumn sizeColumn = this.table.getColumn(FileTableModel.COLUMN_SIZE);
+		sizeColumn.setCellRenderer(new FileSizeRenderer());
+		sizeColumn.setResizable(true);
+
+		// Dynamically set the column to the correct size
+		final TableColumn lastUpdateColumn = this.table.getColumn(FileTableModel.COLUMN_LAST_UPDATE);
+		lastUpdateColumn.setCellRenderer(new LastUpdateRenderer());
+		lastUpdateColumn.setResizable(false);
+		lastUpdateColumn.setMaxWidth(Utils.getTimestampRenderWidth() + 5);
+		lastUpdateColumn.setMinWidth(Utils.getTimestampRenderWidth() + 5);
+
+		// Use a square border (not one with rounded corners)
+		this.directoryButton.setBorder(Utils.createRaisedBevelBorder());
+		this.directoryButton.setFont(Utils.getDefaultFont());
+		this.directoryButton.setFocusable(false);
+		this.directoryButton.setHorizontalAlignment(SwingConstants.LEFT);
+
+		this.summary = new JLabel(" ");
+		this.summary.setBorder(Utils.createRaisedBevelBorder());
+
+		this.scrollPane = new JScrollPane(table);
+
+		this.prefetchTimer = new Timer(PREFETCH_DELAY, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				prefetchSelectedDirectory();
+			}
+		});
+		this.prefetchTimer.setRepeats(false);
+
+		this.responseTimer = new Timer(1000, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				checkResponding();
+			}
+		});
+
+		this.notRespondingLabel = new JLabel();
+		this.notRespondingLabel.setFont(Utils.getDefaultFont());
+
+		this.retryButton = new JButton("Retry");
+		this.retryButton.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				// List the directory again (without recording it in the history)
+				setDirectory(DirectoryBrowser.this.directory, null);
+			}
+		});
+
+		final JButton cancelButton = new JButton("Cancel");
+		cancelButton.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				cancelNotResponding();
+			}
+		});
+
+		this.notRespondingPanel = new JPanel(new MigLayout("insets 10px", "[grow, center]", "[]10[]"));
+		this.notRespondingPanel.setBackground(Utils.getDefaultBackgroundColor());
+		this.notRespondingPanel.add(notRespondingLabel, "wrap");
+		this.notRespondingPanel.add(retryButton, "split 2");
+		this.notRespondingPanel.add(cancelButton);
+
+		add(directoryButton, "grow, wrap");
+		add(scrollPane, "grow, wrap");
+		add(summary, "grow");
+
+		// Set the directory (this will populate the table)
+		setDirectory(directory, snapshot);
+	}
+
+	public File getDirectory() {
+		return canonicalDirectory;
+	}
+
+	@Override
+	public File getParentDirectory() {
+		return parentDirectory;
+	}
+
+	public void refresh() {
+		setDirectory(getDirectory(), null);
+	}
+
+	private void updateSummary() {
+		// The counts are maintained as the listing changes, no need to iterate
+		// over the rows
+		final int files = listingCounts.files, folders = listingCounts.folders;
+		final long totalSize = listingCounts.totalSize;
+
+		final DecimalFormat decimalFormat = createDecimalFormat();
+
+		// Set the summary
+		if (files > 0) {
+			if (folders > 0) {
+				listingSummary = String.format("%d folder(s) and %d file(s) [%s Kb]", folders, files, decimalFormat.format(totalSize / 1024));
+			} else {
+				listingSummary = String.format("%d file(s) [%s Kb]", files, decimalFormat.format(totalSize / 1024));
+			}
+		} else {
+			if (folders > 0) {
+				listingSummary = String.format("%d folder(s)", folders);
+			} else {
+				listingSummary = " ";
+			}
+		}
+
+		updateSelectionSummary();
+	}
+
+	/**
+	 * Displays the summary of the selection (if not empty) or the one of the
+	 * directory. Runs in constant time.
+	 */
+	private void updateSelectionSummary() {
+		if ((directoryResolver != null) || (listingWorker != null) || notResponding || dirty) {
+			// The summary reports the state of the listing
+			return;
+		}
+
+		final int count = selectionTracker.getCount();
+
+		if (!tableModel.getFilter().isEmpty()) {
+			// The selection is the entry under the cursor, report the matches
+			summary.setText(String.format("Filter '%s': %d match(es)", tableModel.getFilter(),
+					tableModel.getFilteredCount()));
+		} else if (count > 0) {
+			summary.setText(String.format("%d selected, %s bytes", count,
+					createDecimalFormat().format(selectionTracker.getFileBytes())));
+		} else {
+			summary.setText(listingSummary);
+		}
+	}
+
+	private static DecimalFormat createDecimalFormat() {
+		final DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.US);
+		symbols.setGroupingSeparator(' ');
+
+		final DecimalFormat decimalFormat = new DecimalFormat();
+		decimalFormat.setDecimalFormatSymbols(symbols);
+
+		return decimalFormat;
+	}
+
+	/**
+	 * Only displays the entries whose name contains the given text (ignoring
+	 * the case) and selects the first one.
+	 *
+	 * @param text
+	 *            the text to search for. Can't be null. An empty text displays
+	 *            all the entries.
+	 */
+	public void setFilter(String text) {
+		tableModel.setFilter(text);
+
+		// Skip the parent directory entry
+		final int first = (tableModel.getRowCount() > 0) && (tableModel.getListingIndex(0) < 0) ? 1 : 0;
+
+		if (tableModel.getRowCount() > first) {
+			table.getSelectionModel().setSelectionInterval(first, first);
+			table.scrollRectToVisible(table.getCellRect(first, 0, true));
+		}
+
+		updateSelectionSummary();
+	}
+
+	/**
+	 * Returns the number of entries selected. Runs in constant time.
+	 *
+	 * @return a positive integer.
+	 */
+	public int getSelectionCount() {
+		return selectionTracker.getCount();
+	}
+
+	/**
+	 * Returns the number of files (not folders) selected. Runs in constant
+	 * time.
+	 *
+	 * @return a positive integer.
+	 */
+	public int getSelectedFileCount() {
+		return selectionTracker.getFileCount();
+	}
+
+	private void select(File file) {
+		final int index = tableModel.indexOf(file);
+
+		if (index >= 0) {
+			table.getSelectionModel().setSelectionInterval(index, index);
+		}
+	}
+
+	/**
+	 * Applies the given changes to the table model row by row while
+	 * preserving the selection.
+	 *
+	 * @param directory
+	 *            the directory whose entries changed.
+	 * @param removed
+	 *            the names of the entries deleted or modified.
+	 * @param listing
+	 *            the listing containing the entries created or modified.
+	 * @param indices
+	 *            the indices of the entries created or modified in the
+	 *            listing.
+	 */
+	private void applyChanges(File directory, Collection<String> removed, DirectoryListing listing, int[] indices) {
+		// Remove the rows of the entries changed
+		final Set<String> selected = new HashSet<>();
+
+		for (String name : removed) {
+			final int row = tableModel.indexOf(new File(directory, name));
+
+			if (row >= 0) {
+				if (table.isRowSelected(row)) {
+					selected.add(name);
+				}
+
+				final FileEntry entry = tableModel.getEntryAt(row);
+
+				listingCounts.remove(entry.isDirectory(), entry.getSize());
+
+				tableModel.removeRow(row);
+			}
+		}
+
+		// Insert the entries created or modified at their sorted position
+		for (int index : indices) {
+			final int row = tableModel.insertEntry(listing.getEntry(index));
+
+			// Counted even if filtered out (it's part of the listing)
+			listingCounts.add(listing.isDirectory(index), listing.getSize(index));
+
+			if ((row >= 0) && selected.contains(listing.getName(index))) {
+				table.addRowSelectionInterval(row, row);
+			}
+		}
+	}
+
+	/**
+	 * Computes the recursive sizes of the directories displayed in the
+	 * background (if enabled).
+	 *
+	 * @param names
+	 *            the names of the entries to consider or null to consider all
+	 *            the entries displayed.
+	 */
+	private void computeFolderSizes(Collection<String> names) {
+		if (!preferences.isShowFolderSizes()) {
+			return;
+		}
+
+		final List<FileEntry> entries = new ArrayList<>();
+
+		if (names == null) {
+			// In display order so that the visible rows are filled first
+			for (int row = 0; row < tableModel.getRowCount(); row++) {
+				if ((tableModel.getListingIndex(row) >= 0) && tableModel.getEntryAt(row).isDirectory()) {
+					entries.add(tableModel.getEntryAt(row));
+				}
+			}
+		} else {
+			for (String name : names) {
+				final int row = tableModel.indexOf(new File(canonicalDirectory, name));
+
+				if ((row >= 0) && (tableModel.getListingIndex(row) >= 0) && tableModel.getEntryAt(row).isDirectory()) {
+					entries.add(tableModel.getEntryAt(row));
+				}
+			}
+		}
+
+		if (entries.isEmpty()) {
+			return;
+		}
+
+		final FolderSizeWorker worker = new FolderSizeWorker(entries);
+
+		try {
+			// Don't occupy the I/O threads listing the directories
+			sizeIndex.execute(worker);
+
+			folderSizeWorkers.add(worker);
+		} catch (RejectedExecutionException e) {
+			// Not a big deal, the sizes will be computed next time
+			logger.warn(String.format("[%s] Unable to compute the directory sizes, too many computations are pending",
+					getComponentLabel()));
+		}
+	}
+
+	/**
+	 * Returns a listing of the entries currently displayed (to be persisted
+	 * as a snapshot) or null if the directory is being listed.
+	 */
+	public DirectoryListing getSnapshot() {
+		if (dirty) {
+			// The directory hasn't been listed since it was invalidated
+			return deferredSnapshot;
+		}
+		if ((listingWorker != null) || (canonicalDirectory == null) || notResponding) {
+			return null;
+		}
+
+		return tableModel.getDisplayedListing();
+	}
+
+	private void cancelPrefetch() {
+		if (prefetch != null) {
+			prefetch.cancel(true);
+			prefetch = null;
+		}
+	}
+
+	/**
+	 * Lists the directory under the cursor in the background so that entering
+	 * it is served from the cache.
+	 */
+	private void prefetchSelectedDirectory() {
+		final int row = table.getSelectionModel().getLeadSelectionIndex();
+
+		if ((row < 0) || (row >= tableModel.getRowCount()) || !table.isRowSelected(row)) {
+			return;
+		}
+
+		final FileEntry entry = tableModel.getEntryAt(row);
+
+		if (entry.isDirectory()) {
+			this.prefetch = directoryCache.prefetch(entry.getFile(), preferences.isShowHidden());
+		}
+	}
+
+	/**
+	 * Cancels the background tasks (if any), their results are obsolete.
+	 */
+	private void cancelWorkers() {
+		responseTimer.stop();
+
+		if (directoryResolver != null) {
+			directoryResolver.cancel(true);
+			directoryResolver = null;
+		}
+
+		if (listingWorker != null) {
+			listingWorker.cancel(true);
+			listingWorker = null;
+
+			if (logger.isDebugEnabled()) {
+				logger.debug(String.format("[%s] Cancelled listing in progress", getComponentLabel()));
+			}
+		}
+		if (changeWorker != null) {
+			changeWorker.cancel(true);
+			changeWorker = null;
+		}
+
+		for (FolderSizeWorker worker : folderSizeWorkers) {
+			worker.cancel(true);
+		}
+
+		folderSizeWorkers.clear();
 
-			return component;
-		}
+		pendingChanges.clear();
+		pendingOverflow = false;
 	}
 
-	private final class FileTypeRenderer extends DefaultTableCellRenderer {
+	@Override
+	public void directoryChanged(DirectoryChangeEvent event) {
+		if (!event.getDirectory().equals(canonicalDirectory)) {
+			// Obsolete event
+			return;
+		}
 
-		private static final long serialVersionUID = -1456922668251532841L;
+		if (event.isOverflow() || (pendingChanges.size() + event.getNames().size() > MAX_INCREMENTAL_CHANGES)) {
+			// No need to track the changes, the directory will be listed again
+			pendingOverflow = true;
+			pendingChanges.clear();
+		} else if (!pendingOverflow) {
+			pendingChanges.addAll(event.getNames());
+		}
 
-		@Override
-		public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row,
-				int column) {
+		if (active) {
+			applyPendingChanges();
+		} else {
+			// Apply the changes once the browser is activated but invalidate
+			// the cached listing right now
+			directoryCache.invalidate(canonicalDirectory);
+		}
+	}
 
-			final JLabel component = (JLabel) super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+	public boolean isActive() {
+		return active;
+	}
+
+	/**
+	 * Activates or deactivates this browser. Once activated, the browser lists
+	 * its directory if it's dirty or applies the changes received while
+	 * inactive.
+	 *
+	 * @param active
+	 *            whether the browser is displayed.
+	 */
+	public void setActive(boolean active) {
+		if (this.active == active) {
+			return;
+		}
 
-			final File file = (File) value;
+		this.active = active;
 
-			if (file.isDirectory()) {
-				component.setIcon(Icons.FOLDER_ICON);
-			} else {
-				component.setIcon(null);
-			}
+		if (!active) {
+			this.deactivationTime = System.currentTimeMillis();
 
-			component.setText("");
+			prefetchTimer.stop();
+			cancelPrefetch();
+		} else {
+			if (dirty) {
+				if (logger.isDebugEnabled()) {
+					logger.debug(String.format("[%s] Listing deferred directory %s", getComponentLabel(),
+							canonicalDirectory.getAbsolutePath()));
+				}
 
-			if (isSelected) {
-				setBackground((row % 2 == 0) ? Color.decode("#FFC57A") : Color.decode("#F5AC4C"));
+				setDirectory(canonicalDirectory, deferredSnapshot);
 			} else {
-				setBackground((row % 2 == 0) ? EVEN_ROW : ODD_ROW);
+				applyPendingChanges();
 			}
+		}
+	}
 
-			setForeground(Color.decode("#555555"));
-			setBorder(Utils.createEmptyBorder(2));
-
-			return component;
+	/**
+	 * Marks the browser's directory as to be listed again: immediately if the
+	 * browser is active, otherwise once it's activated.
+	 */
+	public void markDirty() {
+		if (active) {
+			refresh();
+		} else {
+			this.dirty = true;
 		}
 	}
 
-	private final class FileSizeRenderer extends DefaultTableCellRenderer {
+	public boolean isDirty() {
+		return dirty;
+	}
 
-		private static final long serialVersionUID = -5094024636812268688L;
+	/**
+	 * Returns the date this browser was last deactivated.
+	 */
+	public long getDeactivationTime() {
+		return deactivationTime;
+	}
 
-		private final DecimalFormat decimalFormat;
+	public boolean isHibernated() {
+		return hibernated;
+	}
 
-		public FileSizeRenderer() {
-			final DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.US);
-			symbols.setGroupingSeparator(' ');
+	/**
+	 * Returns an estimation of the memory (in bytes) used by the entries
+	 * displayed and the listings retained by the history (the listings may
+	 * also be retained by the directory cache).
+	 */
+	public long getMemoryUsage() {
+		return tableModel.getListing().getMemoryUsage() + 4L * tableModel.getRowCount() + history.getMemoryUsage();
+	}
 
-			this.decimalFormat = new DecimalFormat();
-			this.decimalFormat.setDecimalFormatSymbols(symbols);
+	/**
+	 * Releases the listings of this (inactive) browser, including the ones
+	 * retained by its history. Only the directory, the selection, the sort
+	 * order and the scroll position are kept. The directory is listed again
+	 * once the browser is activated.
+	 */
+	public void hibernate() {
+		if (active || hibernated) {
+			return;
 		}
 
-		@Override
-		public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row,
-				int column) {
-
-			final JLabel component = (JLabel) super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
-
-			final File file = (File) value;
+		cancelWorkers();
 
-			if (file.isFile()) {
-				// Render the file sizes with ' ' as grouping separator
-				component.setText(decimalFormat.format(file.length()));
-				component.setHorizontalAlignment(JLabel.RIGHT);
-			} else {
-				// Render the directories with a bold font
-				final Font font = component.getFont();
+		if (!dirty) {
+			this.restoredSelection = getSelection();
+			this.restoredViewPosition = scrollPane.getViewport().getViewPosition();
+		}
 
-				component.setFont(new Font(font.getName(), Font.BOLD, component.getFont().getSize()));
-				component.setText("[DIR]");
-			}
+		// Release the listing (the sort order is kept by the table model)
+		tableModel.clear();
+		tableModel.fireTableDataChanged();
 
-			if (isSelected) {
-				setBackground((row % 2 == 0) ? Color.decode("#FFC57A") : Color.decode("#F5AC4C"));
-			} else {
-				setBackground((row % 2 == 0) ? EVEN_ROW : ODD_ROW);
-			}
+		// The locations visited are kept but their directories will be
+		// listed again
+		history.releaseListings();
 
-			setForeground(file.isDirectory() ? Color.BLACK : Color.decode("#555555"));
-			setBorder(Utils.createEmptyBorder(2));
+		this.dirty = true;
+		this.deferredSnapshot = null;
+		this.hibernated = true;
 
-			return component;
+		if (logger.isDebugEnabled()) {
+			logger.debug(String.format("[%s] Hibernated browser of %s", getComponentLabel(),
+					canonicalDirectory.getAbsolutePath()));
 		}
 	}
 
-	private final class LastUpdateRenderer extends DefaultTableCellRenderer {
-
-		private static final long serialVersionUID = -1888924791239159846L;
+	/**
+	 * Restores the selection & scroll position saved when the browser was
+	 * hibernated or navigating the history.
+	 */
+	private void restoreState() {
+		if (restoredSelection == null) {
+			return;
+		}
 
-		private final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		final List<Integer> rows = new ArrayList<>(restoredSelection.size());
 
-		@Override
-		public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row,
-				int column) {
+		for (File file : restoredSelection) {
+			final int row = tableModel.indexOf(file);
 
-			final JLabel component = (JLabel) super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+			if (row >= 0) {
+				rows.add(row);
+			}
+		}
 
-			final File file = (File) value;
+		if (!rows.isEmpty()) {
+			// Only restore the selection if some entries still exist
+			table.clearSelection();
 
-			if (file.equals(getParentDirectory())) {
-				// Don't display the last modified date for the parent directory
-				component.setText("");
-			} else {
-				component.setText(dateFormat.format(new Date(file.lastModified())));
+			for (int row : rows) {
+				table.addRowSelectionInterval(row, row);
 			}
+		}
 
-			if (isSelected) {
-				setBackground((row % 2 == 0) ? Color.decode("#FFC57A") : Color.decode("#F5AC4C"));
-			} else {
-				setBackground((row % 2 == 0) ? EVEN_ROW : ODD_ROW);
-			}
+		final Point position = restoredViewPosition;
 
-			setForeground(Color.decode("#555555"));
-			setBorder(Utils.createEmptyBorder(2));
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				// Wait for the table to be laid out with its new rows
+				scrollPane.getViewport().setViewPosition(position);
+			}
+		});
 
-			return component;
-		}
+		this.restoredSelection = null;
+		this.restoredViewPosition = null;
 	}
 
-	private final class TableHeaderRenderer extends JLabel implements TableCellRenderer {
+	/**
+	 * Applies the pending changes unless a background task is already running
+	 * (the changes will be applied once it completes).
+	 */
+	private void applyPendingChanges() {
+		if (!active || (listingWorker != null) || (changeWorker != null)) {
+			return;
+		}
+		if (pendingOverflow || !pendingChanges.isEmpty()) {
+			// The entries may have changed without changing the directory's
+			// date (the listing may also have been cached in the mean time)
+			directoryCache.invalidate(canonicalDirectory);
+		}
+		if (pendingOverflow || (pendingChanges.size() > MAX_INCREMENTAL_CHANGES)) {
+			// Too many changes, list the directory again
+			refresh();
+		} else if (!pendingChanges.isEmpty()) {
+			this.changeWorker = new ChangeWorker(canonicalDirectory, new HashSet<>(pendingChanges),
+					preferences.isShowHidden());
+
+			try {
+				ioExecutor.execute(changeWorker);
+			} catch (RejectedExecutionException e) {
+				// The file system is stalled, the directory will be listed
+				// again upon the next change
+				logger.warn(String.format("[%s] Unable to apply the changes to %s, the I/O threads are busy",
+						getComponentLabel(), canonicalDirectory.getAbsolutePath()));
+
+				this.changeWorker = null;
+				this.pendingOverflow = true;
+			}
 
-		private static final long serialVersionUID = 596061491019164527L;
+			pendingChanges.clear();
+		}
+	}
 
-		@Override
-		public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row,
-				int column) {
+	/**
+	 * Releases the resources used by this browser. To be called when the
+	 * browser is discarded.
+	 */
+	public void close() {
+		cancelWorkers();
 
-			if (tableModel.getSortCriteria().ordinal() == column) {
-				setIcon(!tableModel.isSortAscending() ? Icons.TRIANGLE_UP_ICON : Icons.TRIANGLE_DOWN_ICON);
-			} else {
-				setIcon(null);
-			}
+		prefetchTimer.stop();
+		cancelPrefetch();
 
-			// Display the text on the left and the icon on the right
-			setHorizontalTextPosition(SwingConstants.LEFT);
-			setText(value.toString());
-			setBorder(BorderFactory.createBevelBorder(BevelBorder.RAISED));
+		if (watchedDirectory != null) {
+			directoryWatcher.unregister(watchedDirectory, this);
 
-			return this;
+			watchedDirectory = null;
 		}
-	}
 
-	private static String getCanonicalPath(File file) {
-		try {
-			return file.getCanonicalPath();
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+		if (logger.isDebugEnabled()) {
+			logger.debug(String.format("[%s] Change events: %s", getComponentLabel(), eventBus));
 		}
 	}
 
-	private static File getCanonicalFile(File file) {
-		try {
-			return file.getCanonicalFile();
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+	/**
+	 * Reports the listing in progress as not responding if it didn't progress
+	 * for too long.
+	 */
+	private void checkResponding() {
+		if (directoryResolver != null) {
+			if (!notResponding && (System.currentTimeMillis() - directoryResolver.startTime >= IoExecutor.DEFAULT_TIMEOUT)) {
+				logger.warn(String.format("[%s] The directory %s isn't responding", getComponentLabel(),
+						directory.getAbsolutePath()));
+
+				// Let the resolution complete in the background
+				setResponding(false);
+			}
+		} else if (listingWorker == null) {
+			responseTimer.stop();
+		} else if (!notResponding && (System.currentTimeMillis() - listingWorker.lastProgress >= LISTING_TIMEOUT)) {
+			logger.warn(String.format("[%s] The directory %s isn't responding", getComponentLabel(),
+					canonicalDirectory.getAbsolutePath()));
+
+			// Let the listing complete in the background, the user can retry or
+			// cancel in the mean time
+			setResponding(false);
 		}
 	}
 
-	private static final long serialVersionUID = 411590029543053088L;
+	/**
+	 * Displays the entries or the "not responding" placeholder (with retry &
+	 * cancel buttons) instead.
+	 */
+	private void setResponding(boolean responding) {
+		if (responding == !notResponding) {
+			return;
+		}
 
-	private final Logger logger = Logger.getLogger(this.getClass());
+		this.notResponding = !responding;
 
-	private File directory;
+		final boolean hadFocus = table.hasFocus() || retryButton.hasFocus();
 
-	private final FileTableModel tableModel;
+		if (responding) {
+			scrollPane.setViewportView(table);
 
-	private final JTable table;
+			if (hadFocus) {
+				table.requestFocusInWindow();
+			}
+		} else {
+			notRespondingLabel.setText(String.format("The directory '%s' is not responding", directory.getPath()));
+			summary.setText("Not responding");
 
-	private final JButton directoryButton = new JButton(Icons.FOLDER_ICON);
+			scrollPane.setViewportView(notRespondingPanel);
 
-	private final ChangeEventSupport eventSupport = new ChangeEventSupport();
+			if (hadFocus) {
+				retryButton.requestFocusInWindow();
+			}
+		}
+	}
 
-	private final UserPreferences preferences;
+	/**
+	 * Gives up on the directory not responding and returns to the previous
+	 * one (or to the home directory).
+	 */
+	private void cancelNotResponding() {
+		cancelWorkers();
 
-	private final JLabel summary;
+		if (history.canGoBack()) {
+			goBack();
+		} else {
+			setDirectory(new File(System.getProperty("user.home")));
+		}
+	}
 
-	public DirectoryBrowser(UserPreferences preferences, File directory) {
-		Validate.notNull(preferences, "The given user preferences are null");
-		Validate.notNull(directory, "The given directory is null");
-		Validate.isTrue(directory.exists(), String.format("The given directory '%s' doesn't exist", directory.getAbsolutePath()));
-		Validate.isTrue(directory.isDirectory(), String.format("The given path '%s' doesn't denote a directory", directory.getAbsolutePath()));
+	/**
+	 * Returns whether the directory isn't responding (the "not responding"
+	 * placeholder is displayed).
+	 */
+	public boolean isNotResponding() {
+		return notResponding;
+	}
 
-		this.preferences = preferences;
+	/**
+	 * Navigates to the given directory. The location left is recorded in the
+	 * navigation history.
+	 *
+	 * @param directory
+	 *            the directory to browse. Can't be null.
+	 */
+	public void setDirectory(File directory) {
+		if ((canonicalDirectory != null) && !canonicalDirectory.equals(directory)) {
+			history.visit(getHistoryLocation());
+		}
 
-		// Layout, columns & rows
-		setLayout(new MigLayout("insets 0px", "[grow]", "[]1[grow]1[]"));
+		setDirectory(directory, null);
+	}
 
-		this.tableModel = new FileTableModel(this);
+	/**
+	 * Returns the current location (to be recorded in the navigation
+	 * history).
+	 */
+	private NavigationHistory.Location getHistoryLocation() {
+		// Only retain the listing if the directory has been fully listed
+		final boolean listed = !dirty && !notResponding && (directoryResolver == null) && (listingWorker == null);
+		final DirectoryListing listing = listed ? tableModel.getDisplayedListing() : null;
+
+		return new NavigationHistory.Location(canonicalDirectory, getSelection(), scrollPane.getViewport()
+				.getViewPosition(), listing);
+	}
 
-		this.table = new JTable(tableModel);
-		this.table.setBackground(Utils.getDefaultBackgroundColor());
-		this.table.addKeyListener(this);
-		this.table.addMouseListener(this);
-		this.table.addFocusListener(this);
-		this.table.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
-		this.table.getSelectionModel().addListSelectionListener(this);
+	/**
+	 * Returns to the previous directory in the navigation history (if any).
+	 */
+	public void goBack() {
+		if (history.canGoBack()) {
+			navigate(history.back(getHistoryLocation()));
+		}
+	}
 
-		// Listen to column event resize events
-		final ColumnEventHelper eventHelper = new ColumnEventHelper(this);
+	/**
+	 * Returns to the directory left by going back (if any).
+	 */
+	public void goForward() {
+		if (history.canGoForward()) {
+			navigate(history.forward(getHistoryLocation()));
+		}
+	}
 
-		this.table.getColumnModel().addColumnModelListener(eventHelper);
-		this.table.getTableHeader().addMouseListener(eventHelper);
+	private void navigate(NavigationHistory.Location location) {
+		// Restore the selection & the scroll position once listed
+		this.restoredSelection = location.getSelection();
+		this.restoredViewPosition = location.getViewPosition();
 
-		// Render the table headers with a bold font
-		this.table.getTableHeader().setFont(Utils.getBoldFont(this.table.getTableHeader().getFont()));
-		this.table.getTableHeader().setBackground(Utils.getDefaultBackgroundColor());
-		this.table.getTableHeader().setDefaultRenderer(new TableHeaderRenderer());
-		this.table.getTableHeader().addMouseListener(this);
+		// The location is left if the directory doesn't exist anymore
+		setDirectory(location.getDirectory(), location.getListing());
+	}
 
-		final TableColumn typeColumn = this.table.getColumn(FileTableModel.COLUMN_TYPE);
-		typeColumn.setCellRenderer(new FileTypeRenderer());
-		typeColumn.setResizable(false);
-		typeColumn.setHeaderValue("");
-		typeColumn.setMaxWidth(Icons.FOLDER_ICON.getIconWidth() + 5);
+	private void setDirectory(File directory, DirectoryListing snapshot) {
+		Validate.notNull(directory, "The given directory is null");
 
-		final TableColumn fileColumn = this.table.getColumn(FileTableModel.COLUMN_NAME);
-		fileColumn.setCellRenderer(new FileNameRenderer());
-		fileColumn.setResizable(true);
+		final File oldDir = this.canonicalDirectory;
 
-		final TableColumn sizeColumn = this.table.getColumn(FileTableModel.COLUMN_SIZE);
-		sizeColumn.setCellRenderer(new FileSizeRenderer());
-		sizeColumn.setResizable(true);
+		// Don't cancel the prefetch in progress, it's probably the directory
+		// being entered
+		this.prefetchTimer.stop();
+		this.prefetch = null;
 
-		// Dynamically set the column to the correct size
-		final TableColumn lastUpdateColumn = this.table.getColumn(FileTableModel.COLUMN_LAST_UPDATE);
-		lastUpdateColumn.setCellRenderer(new LastUpdateRenderer());
-		lastUpdateColumn.setResizable(false);
-		lastUpdateColumn.setMaxWidth(Utils.getTimestampRenderWidth() + 5);
-		lastUpdateColumn.setMinWidth(Utils.getTimestampRenderWidth() + 5);
+		this.directory = directory;
 
-		// Use a square border (not one with rounded corners)
-		this.directoryButton.setBorder(Utils.createRaisedBevelBorder());
-		this.directoryButton.setFont(Utils.getDefaultFont());
-		this.directoryButton.setFocusable(false);
-		this.directoryButton.setHorizontalAlignment(SwingConstants.LEFT);
+		cancelWorkers();
 
-		this.summary = new JLabel(" ");
-		this.summary.setBorder(Utils.createRaisedBevelBorder());
+		// The directory is resolved in the background (the file system may be
+		// stalled). In the mean time, its absolute path is displayed
+		this.canonicalDirectory = directory.getAbsoluteFile();
+		this.parentDirectory = null;
 
-		add(directoryButton, "grow, wrap");
-		add(new JScrollPane(table), "grow, wrap");
-		add(summary, "grow");
+		if (watchedDirectory != null) {
+			directoryWatcher.unregister(watchedDirectory, this);
 
-		// Set the directory (this will populate the table)
-		setDirectory(directory);
-	}
+			watchedDirectory = null;
+		}
 
-	public File getDirectory() {
-		return getCanonicalFile(directory);
-	}
+		setResponding(true);
 
-	@Override
-	public File getParentDirectory() {
-		final File parentDir = getCanonicalFile(directory).getParentFile();
+		directoryButton.setText(canonicalDirectory.getPath());
 
-		return (parentDir != null) && parentDir.exists() ? parentDir : null;
-	}
+		this.tableModel.clear();
+		this.tableModel.fireTableDataChanged();
 
-	public void refresh() {
-		setDirectory(getDirectory());
-	}
+		if (active) {
+			summary.setText("Loading ...");
 
-	private void updateSummary(Iterable<File> iterable) {
-		Validate.notNull(iterable, "The give iterable is null");
+			this.dirty = false;
+			this.deferredSnapshot = null;
+			this.hibernated = false;
 
-		int files = 0, folders = 0;
-		long totalSize = 0;
+			this.directoryResolver = new DirectoryResolver(directory, oldDir, snapshot);
 
-		for (File file : iterable) {
-			if (file.isFile()) {
-				files++;
-				totalSize += file.length();
-			} else {
-				folders++;
-			}
-		}
+			try {
+				ioExecutor.execute(directoryResolver);
 
-		final DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.US);
-		symbols.setGroupingSeparator(' ');
+				// Watch for a stalled file system
+				responseTimer.restart();
+			} catch (RejectedExecutionException e) {
+				// All the I/O threads are blocked by stalled file systems
+				logger.warn(String.format("[%s] Unable to resolve %s, the I/O threads are busy", getComponentLabel(),
+						directory.getAbsolutePath()));
 
-		final DecimalFormat decimalFormat = new DecimalFormat();
-		decimalFormat.setDecimalFormatSymbols(symbols);
+				this.directoryResolver = null;
 
-		// Set the summary
-		if (files > 0) {
-			if (folders > 0) {
-				summary.setText(String.format("%d folder(s) and %d file(s) [%s Kb]", folders, files, decimalFormat.format(totalSize / 1024)));
-			} else {
-				summary.setText(String.format("%d file(s) [%s Kb]", files, decimalFormat.format(totalSize / 1024)));
+				setResponding(false);
 			}
 		} else {
-			if (folders > 0) {
-				summary.setText(String.format("%d folder(s)", folders));
-			} else {
-				summary.setText(" ");
-			}
-		}
-	}
-
-	public void setDirectory(File directory) {
-		Validate.notNull(directory, "The given directory is null");
-		Validate.isTrue(directory.exists(), String.format("The given directory '%s' doesn't exist", directory.getAbsolutePath()));
-		Validate.isTrue(directory.isDirectory(), String.format("The given path '%s' doesn't denote a directory", directory.getAbsolutePath()));
+			// Defer the resolution & the listing until the browser is
+			// displayed
+			summary.setText(" ");
 
-		final File oldDir = this.directory;
+			this.dirty = true;
+			this.deferredSnapshot = snapshot;
+		}
 
-		this.directory = directory;
+		if (logger.isDebugEnabled()) {
+			logger.debug(String.format("[%s] Set directory to %s", getComponentLabel(), directory.getAbsolutePath()));
+		}
 
-		// Refresh the UI
+		// Fire an event to ensure listeners are notified of the directory
+		// change
+		fireChangeEvent();
+	}
 
-		// Display the (normalized) canonical path
-		directoryButton.setText(getCanonicalPath(directory));
+	/**
+	 * Watches & lists the given (resolved) directory.
+	 */
+	private void list(ResolvedDirectory resolved, File oldDir, DirectoryListing snapshot) {
+		// The canonical directory & its parent are resolved once and for all
+		this.canonicalDirectory = resolved.canonicalDirectory;
+		this.parentDirectory = resolved.parentDirectory;
 
-		this.tableModel.clear();
+		// Watch the new directory for changes (the watcher doesn't access the
+		// directory in the calling thread)
+		directoryWatcher.register(canonicalDirectory, this);
 
-		// Populate the list with the directory's entries
-		for (File file : directory.listFiles()) {
-			if (!file.isHidden() || preferences.isShowHidden()) {
-				tableModel.add(file);
-			}
-		}
+		watchedDirectory = canonicalDirectory;
 
-		updateSummary(tableModel.getAll());
+		// Display the (normalized) canonical path
+		directoryButton.setText(canonicalDirectory.getPath());
 
 		// If there's a parent directory, add an entry rendered as ".."
-		final File parentDir = getCanonicalFile(directory).getParentFile();
-
-		if ((parentDir != null) && parentDir.exists()) {
-			tableModel.add(parentDir);
+		if (resolved.parentEntry != null) {
+			tableModel.setParentEntry(resolved.parentEntry);
 		}
 
-		// Sort the entries
-		tableModel.sort();
-
 		// Notify the listeners that all the entries changed
 		tableModel.fireTableDataChanged();
 
-		if ((oldDir != null) && tableModel.contains(oldDir)) {
-			// Auto-select the directory we just left
-			final int index = tableModel.indexOf(oldDir);
+		// Populate the list with the directory's entries in a background task
+		this.listingWorker = new ListingWorker(canonicalDirectory, preferences.isShowHidden(), oldDir, snapshot);
 
-			table.getSelectionModel().setSelectionInterval(index, index);
-		} else {
-			// Auto-select the 1st entry (if there's one)
-			if (tableModel.size() > 1) {
-				table.getSelectionModel().setSelectionInterval(1, 1);
-			}
-		}
+		try {
+			ioExecutor.execute(listingWorker);
 
-		if (logger.isDebugEnabled()) {
-			logger.debug(String.format("[%s] Set directory to %s", getComponentLabel(), directory.getAbsolutePath()));
+			// Watch for a stalled listing
+			responseTimer.restart();
+		} catch (RejectedExecutionException e) {
+			// All the I/O threads are blocked by stalled file systems
+			logger.warn(String.format("[%s] Unable to list %s, the I/O threads are busy", getComponentLabel(),
+					canonicalDirectory.getAbsolutePath()));
+
+			this.listingWorker = null;
+
+			setResponding(false);
 		}
 
-		// Fire an event to ensure listeners are notified of the directory
-		// change
+		// The title of the tab displays the canonical directory
 		fireChangeEvent();
 	}
 
 	@Override
 	public void addChangeListener(ChangeListener listener) {
-		this.eventSupport.addChangeListener(listener);
+		this.eventBus.addChangeListener(listener);
 	}
 
 	@Override
 	public void removeChangeListener(ChangeListener listener) {
-		this.eventSupport.removeChangeListener(listener);
+		this.eventBus.removeChangeListener(listener);
 	}
 
 	private void fireChangeEvent() {
-		this.eventSupport.fireEvent(new ChangeEvent(this));
+		this.eventBus.publish(new ChangeEvent(this));
 	}
 
 	@Override
 	public void valueChanged(ListSelectionEvent e) {
 		if (e.getSource() == table.getSelectionModel()) {
 			// The parent directory can't be selected
-			final File parentDir = getParentDirectory();
+			if ((tableModel.getRowCount() > 0) && (tableModel.getListingIndex(0) < 0)
+					&& table.getSelectionModel().isSelectedIndex(0)) {
 
-			if (parentDir != null) {
-				if (getSelection().contains(parentDir)) {
-					// Unselect the parent directory entry (always the 1st one)
-					table.getSelectionModel().removeSelectionInterval(0, 0);
-				}
+				// Unselect the parent directory entry (always the 1st one)
+				table.getSelectionModel().removeSelectionInterval(0, 0);
 			}
 
 			if (logger.isDebugEnabled()) {
 				logger.debug(String.format("[%s] Selection changed", getComponentLabel()));
 			}
 
-			// Propagate the event
-			fireChangeEvent();
+			// The cursor moved, prefetch the directory under the cursor once
+			// the selection rests on it
+			cancelPrefetch();
+
+			if (active) {
+				prefetchTimer.restart();
+			}
+
+			// The event is propagated by the selection tracker (once per burst
+			// of selection events)
 		}
 	}
 
@@ -515,23 +2159,46 @@ public class DirectoryBrowser extends JPanel implements ListSelectionListener, C
 			return;
 		}
 
-		if (e.getKeyCode() == KeyEvent.VK_ENTER) {
+		if (e.isAltDown() && (e.getKeyCode() == KeyEvent.VK_LEFT)) {
+			// Navigate back
+			goBack();
+
+			e.consume();
+		} else if (e.isAltDown() && (e.getKeyCode() == KeyEvent.VK_RIGHT)) {
+			// Navigate forward
+			goForward();
+
+			e.consume();
+		} else if (e.getKeyCode() == KeyEvent.VK_ENTER) {
 			// What's the current selection ?
 			final List<File> selection = getSelection();
 
 			if (selection.size() == 1) {
 				final File selectedFile = selection.iterator().next();
 
-				if (selectedFile.isDirectory()) {
+				// Rely on the attributes listed (the file system may be stalled)
+				if (tableModel.getEntryAt(table.getSelectedRow()).isDirectory()) {
 					// Change to the selected directory
 					setDirectory(selectedFile);
 				}
 			}
+		} else if ((e.getKeyCode() == KeyEvent.VK_BACK_SPACE) && !tableModel.getFilter().isEmpty()) {
+			// Remove the last character of the filter
+			final String filter = tableModel.getFilter();
+
+			setFilter(filter.substring(0, filter.length() - 1));
+
+			e.consume();
+		} else if ((e.getKeyCode() == KeyEvent.VK_ESCAPE) && !tableModel.getFilter().isEmpty()) {
+			// Display all the entries again
+			setFilter("");
+
+			e.consume();
 		} else if (e.getKeyCode() == KeyEvent.VK_BACK_SPACE) {
 			// Return to the parent directory (if any)
 			final File parentDir = getParentDirectory();
 
-			if ((parentDir != null) && parentDir.exists()) {
+			if (parentDir != null) {
 				setDirectory(parentDir);
 			}
 		} else {
@@ -558,6 +2225,20 @@ public class DirectoryBrowser extends JPanel implements ListSelectionListener, C
 			return;
 		}
 
+		final char c = e.getKeyChar();
+
+		// The space is left to the listeners (it isn't part of the filter)
+		if ((c != KeyEvent.CHAR_UNDEFINED) && (c != ' ') && !Character.isISOControl(c) && !e.isControlDown()
+				&& !e.isMetaDown() && !e.isAltDown()) {
+
+			// Narrow the entries displayed as the user types
+			setFilter(tableModel.getFilter() + c);
+
+			e.consume();
+
+			return;
+		}
+
 		// Propagate event to our listeners
 		processKeyEvent(new KeyEvent(this, e.getID(), e.getWhen(), e.getModifiers(), e.getKeyCode(), e.getKeyChar(),
 				e.getKeyLocation()));
@@ -573,7 +2254,7 @@ public class DirectoryBrowser extends JPanel implements ListSelectionListener, C
 				if (selection.size() == 1) {
 					final File file = selection.iterator().next();
 
-					if (file.isDirectory()) {
+					if (tableModel.getEntryAt(table.getSelectedRow()).isDirectory()) {
 						// Change to the clicked directory
 						setDirectory(file);
 					} else {
@@ -596,7 +2277,7 @@ public class DirectoryBrowser extends JPanel implements ListSelectionListener, C
 					tableModel.setSortCriteria(SortCriteria.TYPE);
 					break;
 				case 1:
-					tableModel.setSortCriteria(SortCriteria.NAME);
+					tableModel.setSortCriteria(SortCriteria.NATURAL_NAME);
 					break;
 				case 2:
 					tableModel.setSortCriteria(SortCriteria.SIZE);
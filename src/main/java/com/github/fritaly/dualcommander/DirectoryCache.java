@@ -0,0 +1,495 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.lang.Validate;
+import org.apache.log4j.Logger;
+
+/**
+ * Application-wide cache of directory listings shared by all the tabs and
+ * panes. The listings are keyed by canonical directory (and whether hidden
+ * entries were included) and evicted in least-recently-used order once the
+ * cache exceeds its maximum number of listings or bytes. A cached listing is
+ * discarded as soon as the last modification date of its directory changes.
+ * <p>
+ * The cache can also be fed in advance by listing directories in the
+ * background (see {@link #prefetch(File, boolean)}). The prefetches run at a
+ * low priority on the (bounded) I/O threads and only a few of them can be in
+ * progress at once.
+ * <p>
+ * The cached listings are shared and must not be modified. This class is
+ * thread-safe.
+ *
+ * @author francois_ritaly
+ */
+public final class DirectoryCache {
+
+	/**
+	 * The default maximum number of listings cached.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 64;
+
+	/**
+	 * The default maximum number of bytes used by the cached listings (64 MB).
+	 */
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+	/**
+	 * The maximum number of prefetches pending or in progress.
+	 */
+	private static final int MAX_PENDING_PREFETCHES = 4;
+
+	private static final class Key {
+
+		private final File directory;
+
+		private final boolean showHidden;
+
+		Key(File directory, boolean showHidden) {
+			this.directory = directory;
+			this.showHidden = showHidden;
+		}
+
+		@Override
+		public int hashCode() {
+			return directory.hashCode() * 31 + (showHidden ? 1 : 0);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			}
+			if (obj instanceof Key) {
+				final Key other = (Key) obj;
+
+				return (this.showHidden == other.showHidden) && this.directory.equals(other.directory);
+			}
+
+			return false;
+		}
+	}
+
+	private static final class Entry {
+
+		private final DirectoryListing listing;
+
+		/**
+		 * The last modification date of the directory when it was listed.
+		 */
+		private final long lastModified;
+
+		private final long memoryUsage;
+
+		Entry(DirectoryListing listing, long lastModified) {
+			this.listing = listing;
+			this.lastModified = lastModified;
+			this.memoryUsage = listing.getMemoryUsage();
+		}
+	}
+
+	private final Logger logger = Logger.getLogger(this.getClass());
+
+	private final int maxEntries;
+
+	private final long maxBytes;
+
+	/**
+	 * The cached listings in access order (the eldest first).
+	 */
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * The number of bytes used by the cached listings.
+	 */
+	private long bytes;
+
+	private long hits, misses, evictions, invalidations, prefetchCount;
+
+	/**
+	 * The prefetches pending or in progress by directory. A prefetch is also
+	 * registered under the canonical directory once resolved.
+	 */
+	private final Map<Key, Future<?>> prefetches = new HashMap<>();
+
+	/**
+	 * The prefetches pending or in progress (the oldest first).
+	 */
+	private final Deque<Future<?>> queue = new ArrayDeque<>();
+
+	/**
+	 * The executor running the prefetches.
+	 */
+	private final IoExecutor ioExecutor;
+
+	public DirectoryCache(IoExecutor ioExecutor) {
+		this(ioExecutor, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+	}
+
+	public DirectoryCache(IoExecutor ioExecutor, int maxEntries, long maxBytes) {
+		Validate.notNull(ioExecutor, "The given I/O executor is null");
+		Validate.isTrue(maxEntries >= 0, String.format("Invalid max entries: %d", maxEntries));
+		Validate.isTrue(maxBytes >= 0, String.format("Invalid max bytes: %d", maxBytes));
+
+		this.ioExecutor = ioExecutor;
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns the cached listing of the given directory if it's still valid.
+	 *
+	 * @param directory
+	 *            the canonical directory. Can't be null.
+	 * @param showHidden
+	 *            whether the listing must include the hidden entries.
+	 * @return the cached listing or null if there's none or if the directory
+	 *         changed since it was listed.
+	 */
+	public DirectoryListing get(File directory, boolean showHidden) {
+		Validate.notNull(directory, "The given directory is null");
+
+		// Stat the directory before acquiring the lock (may be slow)
+		final long lastModified = directory.lastModified();
+
+		synchronized (this) {
+			final Key key = new Key(directory, showHidden);
+			final Entry entry = entries.get(key);
+
+			if (entry == null) {
+				misses++;
+
+				return null;
+			}
+			if ((lastModified == 0) || (entry.lastModified != lastModified)) {
+				// The directory changed (or vanished) since it was listed
+				remove(key);
+
+				invalidations++;
+				misses++;
+
+				if (logger.isDebugEnabled()) {
+					logger.debug(String.format("Invalidated stale listing of %s", directory.getAbsolutePath()));
+				}
+
+				return null;
+			}
+
+			hits++;
+
+			return entry.listing;
+		}
+	}
+
+	/**
+	 * Caches the given listing.
+	 *
+	 * @param listing
+	 *            the listing to cache (whose directory must be canonical). Can't
+	 *            be null. The listing must not be modified afterwards.
+	 * @param showHidden
+	 *            whether the listing includes the hidden entries.
+	 * @param lastModified
+	 *            the last modification date of the directory read before
+	 *            listing it.
+	 */
+	public synchronized void put(DirectoryListing listing, boolean showHidden, long lastModified) {
+		Validate.notNull(listing, "The given listing is null");
+		Validate.notNull(listing.getDirectory(), "The given listing has no directory");
+
+		if (lastModified == 0) {
+			// The date is unknown, the listing can't be validated
+			return;
+		}
+
+		final Key key = new Key(listing.getDirectory(), showHidden);
+
+		remove(key);
+
+		final Entry entry = new Entry(listing, lastModified);
+
+		entries.put(key, entry);
+
+		bytes += entry.memoryUsage;
+
+		// Evict the least recently used listings
+		final Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+
+		while (((entries.size() > maxEntries) || (bytes > maxBytes)) && iterator.hasNext()) {
+			final Map.Entry<Key, Entry> eldest = iterator.next();
+
+			iterator.remove();
+
+			bytes -= eldest.getValue().memoryUsage;
+			evictions++;
+
+			if (logger.isDebugEnabled()) {
+				logger.debug(String.format("Evicted listing of %s", eldest.getKey().directory.getAbsolutePath()));
+			}
+		}
+	}
+
+	/**
+	 * Lists the given directory in the background and caches its listing
+	 * unless it's already cached. Only a few prefetches can be pending or in
+	 * progress: the oldest ones are cancelled first.
+	 *
+	 * @param directory
+	 *            the directory to list. Can't be null.
+	 * @param showHidden
+	 *            whether the listing must include the hidden entries.
+	 * @return the future result of the prefetch (to cancel it) or null if the
+	 *         directory is already cached or if all the I/O threads are busy.
+	 */
+	public synchronized Future<?> prefetch(final File directory, final boolean showHidden) {
+		Validate.notNull(directory, "The given directory is null");
+
+		final Key key = new Key(directory, showHidden);
+
+		if (entries.containsKey(key)) {
+			// The listing will be validated when read
+			return null;
+		}
+
+		final Future<?> pending = prefetches.get(key);
+
+		if (pending != null) {
+			return pending;
+		}
+
+		final FutureTask<Void> task = new FutureTask<Void>(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				final Thread thread = Thread.currentThread();
+				final int priority = thread.getPriority();
+
+				// Don't compete with the listings requested by the user
+				thread.setPriority(Thread.MIN_PRIORITY);
+
+				try {
+					final File canonicalDirectory = directory.getCanonicalFile();
+
+					if (!canonicalDirectory.equals(directory)) {
+						// The listing is awaited under the canonical directory
+						register(new Key(canonicalDirectory, showHidden));
+					}
+
+					// Read the date before listing (see ListingWorker)
+					final long lastModified = canonicalDirectory.lastModified();
+
+					final DirectoryListing listing = DirectoryListing.list(canonicalDirectory, showHidden);
+
+					if (listing != null) {
+						put(listing, showHidden, lastModified);
+
+						if (logger.isDebugEnabled()) {
+							logger.debug(String.format("Prefetched %d entries in %s", listing.size(),
+									canonicalDirectory.getAbsolutePath()));
+						}
+					}
+
+					return null;
+				} finally {
+					thread.setPriority(priority);
+				}
+			}
+
+			/**
+			 * Registers the prefetch (the enclosing task) under the given key.
+			 */
+			private void register(Key canonicalKey) {
+				synchronized (DirectoryCache.this) {
+					final Future<?> prefetch = prefetches.get(key);
+
+					if ((prefetch != null) && !prefetches.containsKey(canonicalKey)) {
+						prefetches.put(canonicalKey, prefetch);
+					}
+				}
+			}
+		}) {
+			@Override
+			protected void done() {
+				// Called when completed or cancelled (even if never started)
+				synchronized (DirectoryCache.this) {
+					prefetches.values().removeAll(Collections.singleton(this));
+					queue.remove(this);
+				}
+			}
+		};
+
+		if (queue.size() >= MAX_PENDING_PREFETCHES) {
+			// Cancel the oldest prefetch (possibly blocked by a stalled mount)
+			queue.peek().cancel(true);
+		}
+
+		prefetches.put(key, task);
+		queue.add(task);
+
+		try {
+			ioExecutor.execute(task);
+		} catch (RejectedExecutionException e) {
+			// All the I/O threads are busy, give up
+			task.cancel(false);
+
+			return null;
+		}
+
+		prefetchCount++;
+
+		return task;
+	}
+
+	/**
+	 * Waits at most the given delay for the prefetch of the given directory
+	 * (if any) to complete. A prefetch not completed in time is cancelled, the
+	 * caller lists the directory itself.
+	 *
+	 * @param directory
+	 *            the canonical directory about to be listed. Can't be null.
+	 * @param showHidden
+	 *            whether the listing must include the hidden entries.
+	 * @param timeout
+	 *            the maximum delay to wait (in ms). Must be positive.
+	 * @return whether a prefetch completed in time.
+	 * @throws InterruptedException
+	 *             if the current thread is interrupted while waiting.
+	 */
+	public boolean awaitPrefetch(File directory, boolean showHidden, long timeout) throws InterruptedException {
+		Validate.notNull(directory, "The given directory is null");
+		Validate.isTrue(timeout > 0, String.format("Invalid timeout: %d", timeout));
+
+		final Future<?> future;
+
+		synchronized (this) {
+			future = prefetches.get(new Key(directory, showHidden));
+		}
+
+		if (future == null) {
+			return false;
+		}
+
+		try {
+			future.get(timeout, TimeUnit.MILLISECONDS);
+
+			return true;
+		} catch (TimeoutException e) {
+			future.cancel(true);
+
+			if (logger.isDebugEnabled()) {
+				logger.debug(String.format("Prefetch of %s timed out after %d ms", directory.getAbsolutePath(), timeout));
+			}
+		} catch (ExecutionException | CancellationException e) {
+			// The directory will be listed by the caller
+		}
+
+		return false;
+	}
+
+	/**
+	 * Discards the cached listings of the given directory. To be called when
+	 * the directory's entries may have changed without changing its last
+	 * modification date (for instance when a file is overwritten).
+	 *
+	 * @param directory
+	 *            the directory whose listings are to be discarded. Can't be
+	 *            null.
+	 */
+	public synchronized void invalidate(File directory) {
+		Validate.notNull(directory, "The given directory is null");
+
+		if ((remove(new Key(directory, true)) | remove(new Key(directory, false)))) {
+			invalidations++;
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	private boolean remove(Key key) {
+		final Entry entry = entries.remove(key);
+
+		if (entry != null) {
+			bytes -= entry.memoryUsage;
+
+			return true;
+		}
+
+		return false;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getMemoryUsage() {
+		return bytes;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	public synchronized long getPrefetchCount() {
+		return prefetchCount;
+	}
+
+	/**
+	 * Returns the ratio of lookups served by the cache (between 0 and 1).
+	 */
+	public synchronized double getHitRatio() {
+		final long lookups = hits + misses;
+
+		return (lookups == 0) ? 0 : (double) hits / lookups;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%s[%d listings, %d bytes, %d hits, %d misses, %d evictions, %d invalidations, %d prefetches]",
+				getClass().getSimpleName(), entries.size(), bytes, hits, misses, evictions, invalidations, prefetchCount);
+	}
+}
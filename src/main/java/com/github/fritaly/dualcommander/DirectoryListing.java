@@ -0,0 +1,457 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Compact, columnar storage for the entries of a directory. Instead of one
+ * object per entry holding a full path, the names are packed into a single
+ * character arena, the sizes and modification dates are stored in
+ * <code>long</code> arrays and the type & hidden flags in bit sets. The
+ * entries are exposed as lightweight {@link FileEntry} views.
+ * <p>
+ * A listing isn't thread-safe: it's populated by a single thread then
+ * published (e.g. through the {@link DirectoryCache} or to the EDT) after
+ * which it's no longer modified, which makes it safe to share. An owner which
+ * needs to change a shared listing (e.g. to insert entries or set the
+ * recursive sizes of directories, see {@link FileTableModel}) first takes a
+ * private copy (see {@link #copy()}) and only modifies it from a single thread.
+ *
+ * @author francois_ritaly
+ */
+public final class DirectoryListing {
+
+	/**
+	 * Whether the hidden flag is a file attribute (Windows) or derived from the
+	 * file name (Unix).
+	 */
+	private static final boolean DOS_ATTRIBUTES = (File.separatorChar == '\\');
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * The directory containing the entries. Can be null for a listing of
+	 * file system roots.
+	 */
+	private final File directory;
+
+	/**
+	 * The arena storing the names of all entries one after the other.
+	 */
+	private char[] names;
+
+	/**
+	 * The offsets of the names in the arena. The name of the i-th entry
+	 * starts at offsets[i] and ends at offsets[i + 1] (exclusive).
+	 */
+	private int[] offsets;
+
+	private long[] sizes;
+
+	private long[] lastModified;
+
+	private final BitSet directories = new BitSet();
+
+	private final BitSet hidden = new BitSet();
+
+	/**
+	 * The directories whose size is their recursive size (computed
+	 * separately) instead of zero.
+	 */
+	private final BitSet computedSizes = new BitSet();
+
+	private int size;
+
+	public DirectoryListing(File directory) {
+		this(directory, INITIAL_CAPACITY);
+	}
+
+	public DirectoryListing(File directory, int capacity) {
+		Validate.isTrue(capacity >= 0, "The given capacity must be positive");
+
+		this.directory = directory;
+		this.names = new char[Math.max(capacity, 1) * 16];
+		this.offsets = new int[capacity + 1];
+		this.sizes = new long[capacity];
+		this.lastModified = new long[capacity];
+	}
+
+	private static BasicFileAttributes readAttributes(Path path, LinkOption... options) throws IOException {
+		if (DOS_ATTRIBUTES) {
+			return Files.readAttributes(path, DosFileAttributes.class, options);
+		}
+
+		return Files.readAttributes(path, BasicFileAttributes.class, options);
+	}
+
+	/**
+	 * Lists the given directory. The entries whose attributes can't be read
+	 * are skipped.
+	 *
+	 * @param directory
+	 *            the directory to list. Can't be null.
+	 * @param includeHidden
+	 *            whether to include the hidden entries.
+	 * @return the listing or null if the current thread was interrupted
+	 *         during the listing.
+	 * @throws IOException
+	 *             if the directory can't be listed.
+	 */
+	public static DirectoryListing list(File directory, boolean includeHidden) throws IOException {
+		Validate.notNull(directory, "The given directory is null");
+
+		final DirectoryListing listing = new DirectoryListing(directory);
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath())) {
+			for (Path path : stream) {
+				if (Thread.currentThread().isInterrupted()) {
+					return null;
+				}
+
+				try {
+					listing.add(path, includeHidden);
+				} catch (IOException e) {
+					// Skip the entry
+				}
+			}
+		}
+
+		listing.trimToSize();
+
+		return listing;
+	}
+
+	/**
+	 * Adds a new entry from the attributes of the given path. The attributes
+	 * are read with a single call to the file system. Symbolic links are
+	 * followed unless broken in which case the attributes of the link itself
+	 * are returned.
+	 *
+	 * @param path
+	 *            the path to introspect. Can't be null.
+	 * @return the index of the new entry.
+	 * @throws IOException
+	 *             if the attributes can't be read.
+	 */
+	public int add(Path path) throws IOException {
+		return add(path, true);
+	}
+
+	/**
+	 * Adds a new entry from the attributes of the given path unless the entry
+	 * is hidden and the hidden entries are excluded.
+	 *
+	 * @param path
+	 *            the path to introspect. Can't be null.
+	 * @param includeHidden
+	 *            whether to add the entry if it's hidden.
+	 * @return the index of the new entry or -1 if the entry was excluded.
+	 * @throws IOException
+	 *             if the attributes can't be read.
+	 */
+	public int add(Path path, boolean includeHidden) throws IOException {
+		Validate.notNull(path, "The given path is null");
+
+		// The root directories have no name, use their path instead
+		final String name = (path.getFileName() != null) ? path.getFileName().toString() : path.toString();
+
+		if (!includeHidden && !DOS_ATTRIBUTES && name.startsWith(".")) {
+			// No need to read the attributes of an excluded entry
+			return -1;
+		}
+
+		BasicFileAttributes attributes;
+
+		try {
+			attributes = readAttributes(path);
+		} catch (IOException e) {
+			// Broken symbolic link ? Use the attributes of the link itself
+			attributes = readAttributes(path, LinkOption.NOFOLLOW_LINKS);
+		}
+
+		final boolean hidden;
+
+		if (attributes instanceof DosFileAttributes) {
+			hidden = ((DosFileAttributes) attributes).isHidden();
+		} else {
+			// Same convention as File.isHidden() on Unix
+			hidden = name.startsWith(".");
+		}
+
+		if (hidden && !includeHidden) {
+			return -1;
+		}
+
+		return add(name, attributes.isDirectory(), attributes.isDirectory() ? 0 : attributes.size(), attributes
+				.lastModifiedTime().toMillis(), hidden);
+	}
+
+	public int add(String name, boolean directory, long size, long lastModified, boolean hidden) {
+		Validate.notNull(name, "The given name is null");
+
+		ensureCapacity(this.size + 1, this.offsets[this.size] + name.length());
+
+		final int index = this.size++;
+
+		name.getChars(0, name.length(), this.names, this.offsets[index]);
+
+		this.offsets[index + 1] = this.offsets[index] + name.length();
+		this.sizes[index] = size;
+		this.lastModified[index] = lastModified;
+		this.directories.set(index, directory);
+		this.hidden.set(index, hidden);
+
+		return index;
+	}
+
+	private void ensureCapacity(int count, int length) {
+		if (count > sizes.length) {
+			final int capacity = Math.max(count, sizes.length + (sizes.length >> 1));
+
+			this.offsets = Arrays.copyOf(this.offsets, capacity + 1);
+			this.sizes = Arrays.copyOf(this.sizes, capacity);
+			this.lastModified = Arrays.copyOf(this.lastModified, capacity);
+		}
+		if (length > names.length) {
+			this.names = Arrays.copyOf(this.names, Math.max(length, names.length + (names.length >> 1)));
+		}
+	}
+
+	/**
+	 * Releases the unused capacity once the listing is complete.
+	 */
+	public void trimToSize() {
+		this.names = Arrays.copyOf(this.names, this.offsets[size]);
+		this.offsets = Arrays.copyOf(this.offsets, size + 1);
+		this.sizes = Arrays.copyOf(this.sizes, size);
+		this.lastModified = Arrays.copyOf(this.lastModified, size);
+	}
+
+	/**
+	 * Returns a new listing with the entries at the given indices (in the
+	 * given order).
+	 *
+	 * @param indices
+	 *            the indices of the entries to copy. Can't be null.
+	 * @return a new listing.
+	 */
+	public DirectoryListing subset(int[] indices) {
+		Validate.notNull(indices, "The given array of indices is null");
+
+		final DirectoryListing listing = new DirectoryListing(directory, indices.length);
+
+		for (int index : indices) {
+			final int added = listing.add(getName(index), isDirectory(index), getSize(index), getLastModified(index),
+					isHidden(index));
+
+			listing.computedSizes.set(added, computedSizes.get(index));
+		}
+
+		return listing;
+	}
+
+	/**
+	 * Returns a private copy of this listing which can be modified without
+	 * affecting this one. The entries keep their indices.
+	 *
+	 * @return a new listing.
+	 */
+	public DirectoryListing copy() {
+		final DirectoryListing listing = new DirectoryListing(directory, 0);
+		listing.names = Arrays.copyOf(names, Math.max(offsets[size], 16));
+		listing.offsets = Arrays.copyOf(offsets, size + 1);
+		listing.sizes = Arrays.copyOf(sizes, size);
+		listing.lastModified = Arrays.copyOf(lastModified, size);
+		listing.directories.or(directories);
+		listing.hidden.or(hidden);
+		listing.computedSizes.or(computedSizes);
+		listing.size = size;
+
+		return listing;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public String getName(int index) {
+		checkIndex(index);
+
+		return new String(names, offsets[index], offsets[index + 1] - offsets[index]);
+	}
+
+	/**
+	 * Tells whether the name of the entry at the given index is equal to the
+	 * given one without creating a string.
+	 */
+	public boolean isName(int index, String name) {
+		checkIndex(index);
+
+		final int offset = offsets[index];
+
+		if (offsets[index + 1] - offset != name.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < name.length(); i++) {
+			if (names[offset + i] != name.charAt(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	public File getFile(int index) {
+		return (directory != null) ? new File(directory, getName(index)) : new File(getName(index));
+	}
+
+	public boolean isDirectory(int index) {
+		checkIndex(index);
+
+		return directories.get(index);
+	}
+
+	public long getSize(int index) {
+		checkIndex(index);
+
+		return sizes[index];
+	}
+
+	/**
+	 * Sets the recursive size of the directory at the given index. Only to be
+	 * called on a private copy of the listing (never on a shared one).
+	 *
+	 * @param index
+	 *            the index of a directory entry.
+	 * @param size
+	 *            the total size (in bytes) of the files in the directory.
+	 */
+	public void setDirectorySize(int index, long size) {
+		checkIndex(index);
+
+		Validate.isTrue(directories.get(index), String.format("The entry at index %d isn't a directory", index));
+
+		this.sizes[index] = size;
+		this.computedSizes.set(index);
+	}
+
+	/**
+	 * Tells whether the size of the entry at the given index is known, that is
+	 * whether it's a file or a directory whose recursive size was computed.
+	 */
+	public boolean isSizeComputed(int index) {
+		checkIndex(index);
+
+		return !directories.get(index) || computedSizes.get(index);
+	}
+
+	public long getLastModified(int index) {
+		checkIndex(index);
+
+		return lastModified[index];
+	}
+
+	public boolean isHidden(int index) {
+		checkIndex(index);
+
+		return hidden.get(index);
+	}
+
+	public FileEntry getEntry(int index) {
+		checkIndex(index);
+
+		return new FileEntry(this, index);
+	}
+
+	/**
+	 * Returns the index of the entry matching the given file or -1.
+	 */
+	public int indexOf(File file) {
+		if ((file == null) || (directory == null) || !directory.equals(file.getParentFile())) {
+			return -1;
+		}
+
+		final String name = file.getName();
+
+		for (int i = 0; i < size; i++) {
+			if (isName(i, name)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns the index of the last entry matching the given file or -1.
+	 */
+	public int lastIndexOf(File file) {
+		if ((file == null) || (directory == null) || !directory.equals(file.getParentFile())) {
+			return -1;
+		}
+
+		final String name = file.getName();
+
+		for (int i = size - 1; i >= 0; i--) {
+			if (isName(i, name)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns an estimation of the memory (in bytes) used by this listing.
+	 *
+	 * @return a long.
+	 */
+	public long getMemoryUsage() {
+		// Assume a 16-byte header per array and a long per 64 bits of bit set
+		return (16 + 2L * names.length) + (16 + 4L * offsets.length) + (16 + 8L * sizes.length)
+				+ (16 + 8L * lastModified.length) + (16 + directories.size() / 8) + (16 + hidden.size() / 8)
+				+ (16 + computedSizes.size() / 8);
+	}
+
+	private void checkIndex(int index) {
+		if ((index < 0) || (index >= size)) {
+			throw new IndexOutOfBoundsException(String.format("Index: %d, size: %d", index, size));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%s, %d entries]", getClass().getSimpleName(), directory, size);
+	}
+}
@@ -0,0 +1,564 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.lang.Validate;
+import org.apache.log4j.Logger;
+
+/**
+ * Persistent index of the recursive sizes of the directories. Each directory
+ * is recorded with its last modification date, the number & size of the files
+ * it directly contains and the names of its sub-directories. Since the date of
+ * a directory changes whenever an entry is created, deleted or renamed in it,
+ * a directory whose date didn't change is revalidated without being listed
+ * again: only the dates of its sub-directories are read and only the subtrees
+ * which changed are listed.
+ * <p>
+ * Writing into an existing file doesn't change the date of its directory so
+ * the new size of a file modified in place is only taken into account once its
+ * directory changes. The symbolic links inside the directories aren't followed
+ * (they're counted as files) and the hard links are counted once per link.
+ * <p>
+ * The index is bounded: the least recently used directories are evicted first
+ * (they'll simply be listed again). It's persisted in a single compressed file
+ * (see {@link #load()} and {@link #save()}).
+ * <p>
+ * The sizes are computed on a few low priority threads of the index (see
+ * {@link #execute(Runnable)}) so that walking large trees doesn't occupy the
+ * threads listing the directories. This class is thread-safe.
+ *
+ * @author francois_ritaly
+ */
+public final class DirectorySizeIndex {
+
+	/**
+	 * The default maximum number of directories indexed.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 200000;
+
+	/**
+	 * Magic number identifying an index file ("DCSI").
+	 */
+	private static final int MAGIC = 0x44435349;
+
+	private static final int VERSION = 1;
+
+	private static final String[] NO_NAMES = new String[0];
+
+	/**
+	 * The maximum number of threads computing the sizes.
+	 */
+	private static final int MAX_THREADS = 2;
+
+	/**
+	 * The maximum number of computations waiting to be run.
+	 */
+	private static final int MAX_PENDING_TASKS = 16;
+
+	/**
+	 * The recursive size of a directory.
+	 */
+	public static final class DirectorySize {
+
+		private final long size;
+
+		private final long files;
+
+		private final long directories;
+
+		DirectorySize(long size, long files, long directories) {
+			this.size = size;
+			this.files = files;
+			this.directories = directories;
+		}
+
+		/**
+		 * Returns the total size (in bytes) of the files in the directory and
+		 * its sub-directories.
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		public long getFiles() {
+			return files;
+		}
+
+		public long getDirectories() {
+			return directories;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s[%d bytes, %d files, %d directories]", getClass().getSimpleName(), size, files,
+					directories);
+		}
+	}
+
+	/**
+	 * The state of a directory when it was last validated.
+	 */
+	private static final class Node {
+
+		private final long lastModified;
+
+		/**
+		 * The number & size of the files directly inside the directory.
+		 */
+		private final long files, fileSize;
+
+		private final String[] subdirectories;
+
+		/**
+		 * The recursive totals computed when the directory was last validated.
+		 */
+		private final DirectorySize total;
+
+		Node(long lastModified, long files, long fileSize, String[] subdirectories, DirectorySize total) {
+			this.lastModified = lastModified;
+			this.files = files;
+			this.fileSize = fileSize;
+			this.subdirectories = subdirectories;
+			this.total = total;
+		}
+	}
+
+	private final Logger logger = Logger.getLogger(this.getClass());
+
+	/**
+	 * The file storing the index.
+	 */
+	private final File storage;
+
+	private final int maxEntries;
+
+	/**
+	 * The nodes keyed by directory path in least-recently-used order.
+	 */
+	private final LinkedHashMap<String, Node> nodes = new LinkedHashMap<String, Node>(1024, 0.75f, true) {
+
+		private static final long serialVersionUID = -2400838493513405467L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Node> eldest) {
+			return size() > maxEntries;
+		}
+	};
+
+	/**
+	 * The number of directories revalidated without being listed & listed.
+	 */
+	private long hits, misses;
+
+	/**
+	 * Whether the index changed since it was loaded or saved.
+	 */
+	private boolean modified;
+
+	/**
+	 * The executor computing the sizes.
+	 */
+	private final ThreadPoolExecutor executor;
+
+	public DirectorySizeIndex(File storage) {
+		this(storage, DEFAULT_MAX_ENTRIES);
+	}
+
+	public DirectorySizeIndex(File storage, int maxEntries) {
+		Validate.notNull(storage, "The given storage file is null");
+		Validate.isTrue(maxEntries > 0, String.format("Invalid max entries: %d", maxEntries));
+
+		this.storage = storage;
+		this.maxEntries = maxEntries;
+
+		final AtomicInteger count = new AtomicInteger();
+
+		this.executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 30, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(MAX_PENDING_TASKS), new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable runnable) {
+						final Thread thread = new Thread(runnable, "DirectorySizeIndex-" + count.incrementAndGet());
+						thread.setDaemon(true);
+						thread.setPriority(Thread.MIN_PRIORITY);
+
+						return thread;
+					}
+				});
+
+		// Release the idle threads
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Executes the given task (typically a background worker computing the
+	 * sizes of directories) on one of the low priority threads of the index.
+	 *
+	 * @param task
+	 *            the task to execute. Can't be null.
+	 * @throws RejectedExecutionException
+	 *             if too many tasks are pending.
+	 */
+	public void execute(Runnable task) {
+		Validate.notNull(task, "The given task is null");
+
+		executor.execute(task);
+	}
+
+	public File getStorage() {
+		return storage;
+	}
+
+	/**
+	 * Returns the size of the given directory when it was last computed
+	 * without accessing the file system.
+	 *
+	 * @param directory
+	 *            the directory whose size is requested. Can't be null.
+	 * @return the (possibly stale) size or null if the directory isn't
+	 *         indexed.
+	 */
+	public synchronized DirectorySize get(File directory) {
+		Validate.notNull(directory, "The given directory is null");
+
+		final Node node = nodes.get(directory.getAbsolutePath());
+
+		return (node != null) ? node.total : null;
+	}
+
+	/**
+	 * Computes the size of the given directory, only listing the
+	 * sub-directories which changed since the last computation. The directory
+	 * itself can be a symbolic link to a directory.
+	 *
+	 * @param directory
+	 *            the directory whose size is requested. Can't be null.
+	 * @return the size of the directory. Never returns null.
+	 * @throws InterruptedIOException
+	 *             if the current thread was interrupted.
+	 * @throws IOException
+	 *             if the directory can't be listed.
+	 */
+	public DirectorySize compute(File directory) throws IOException {
+		Validate.notNull(directory, "The given directory is null");
+
+		final Path path = directory.getAbsoluteFile().toPath();
+
+		final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+		if (!attributes.isDirectory()) {
+			throw new IOException(String.format("The file %s isn't a directory", path));
+		}
+
+		return validate(path, attributes.lastModifiedTime().toMillis());
+	}
+
+	/**
+	 * Revalidates the node of the given directory (and of its
+	 * sub-directories) against the given date.
+	 */
+	private DirectorySize validate(Path directory, long lastModified) throws IOException {
+		final String key = directory.toString();
+
+		Node node;
+
+		synchronized (this) {
+			node = nodes.get(key);
+		}
+
+		String[] obsolete = NO_NAMES;
+
+		if ((node != null) && (node.lastModified == lastModified)) {
+			synchronized (this) {
+				hits++;
+			}
+		} else {
+			// The directory changed (or isn't indexed), list it again
+			final Node previous = node;
+
+			node = list(directory, lastModified);
+
+			if (previous != null) {
+				obsolete = previous.subdirectories;
+			}
+
+			synchronized (this) {
+				misses++;
+			}
+		}
+
+		long size = node.fileSize, files = node.files, directories = node.subdirectories.length;
+
+		for (String name : node.subdirectories) {
+			checkInterrupted();
+
+			final Path subdirectory = directory.resolve(name);
+
+			try {
+				final BasicFileAttributes attributes = Files.readAttributes(subdirectory, BasicFileAttributes.class,
+						LinkOption.NOFOLLOW_LINKS);
+
+				if (!attributes.isDirectory()) {
+					// Replaced in the mean time
+					continue;
+				}
+
+				final DirectorySize total = validate(subdirectory, attributes.lastModifiedTime().toMillis());
+
+				size += total.size;
+				files += total.files;
+				directories += total.directories;
+			} catch (InterruptedIOException | ClosedByInterruptException e) {
+				throw e;
+			} catch (IOException e) {
+				// Deleted in the mean time or not readable, don't count it
+				if (logger.isDebugEnabled()) {
+					logger.debug(String.format("Unable to compute the size of %s: %s", subdirectory, e.getMessage()));
+				}
+			}
+		}
+
+		// Don't record partial totals
+		checkInterrupted();
+
+		final DirectorySize total = new DirectorySize(size, files, directories);
+
+		synchronized (this) {
+			if (obsolete.length > 0) {
+				// Forget the sub-directories deleted or renamed (their own
+				// sub-directories will be evicted eventually)
+				final Set<String> names = new HashSet<>(Arrays.asList(node.subdirectories));
+
+				for (String name : obsolete) {
+					if (!names.contains(name)) {
+						nodes.remove(directory.resolve(name).toString());
+					}
+				}
+			}
+
+			nodes.put(key, new Node(lastModified, node.files, node.fileSize, node.subdirectories, total));
+
+			modified = true;
+		}
+
+		return total;
+	}
+
+	/**
+	 * Lists the given directory and returns a node without totals.
+	 */
+	private Node list(Path directory, long lastModified) throws IOException {
+		final List<String> subdirectories = new ArrayList<>();
+
+		long files = 0, fileSize = 0;
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path path : stream) {
+				final BasicFileAttributes attributes;
+
+				try {
+					attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+				} catch (IOException e) {
+					// The entry was probably deleted in the mean time
+					continue;
+				}
+
+				if (attributes.isDirectory()) {
+					subdirectories.add(path.getFileName().toString());
+				} else {
+					files++;
+					fileSize += attributes.size();
+				}
+			}
+		}
+
+		return new Node(lastModified, files, fileSize, subdirectories.toArray(new String[subdirectories.size()]), null);
+	}
+
+	private static void checkInterrupted() throws InterruptedIOException {
+		if (Thread.currentThread().isInterrupted()) {
+			throw new InterruptedIOException("The computation was interrupted");
+		}
+	}
+
+	/**
+	 * Loads the index from its storage file. The directories already indexed
+	 * are kept as is. An index which can't be read is silently ignored.
+	 */
+	public void load() {
+		if (!storage.isFile()) {
+			return;
+		}
+
+		final Map<String, Node> loaded = new LinkedHashMap<>();
+
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(
+				new FileInputStream(storage))))) {
+
+			if ((input.readInt() != MAGIC) || (input.readInt() != VERSION)) {
+				// Obsolete format
+				return;
+			}
+
+			final int count = input.readInt();
+
+			for (int i = 0; i < count; i++) {
+				final String key = input.readUTF();
+				final long lastModified = input.readLong();
+				final long files = input.readLong();
+				final long fileSize = input.readLong();
+				final String[] subdirectories = new String[input.readInt()];
+
+				for (int j = 0; j < subdirectories.length; j++) {
+					subdirectories[j] = input.readUTF();
+				}
+
+				final DirectorySize total = new DirectorySize(input.readLong(), input.readLong(), input.readLong());
+
+				loaded.put(key, new Node(lastModified, files, fileSize, subdirectories, total));
+			}
+		} catch (IOException e) {
+			logger.warn(String.format("Unable to read the directory size index %s", storage.getAbsolutePath()), e);
+
+			return;
+		}
+
+		synchronized (this) {
+			// The directories already indexed are more recent
+			final Map<String, Node> current = new LinkedHashMap<>(nodes);
+
+			nodes.clear();
+			nodes.putAll(loaded);
+			nodes.putAll(current);
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug(String.format("Loaded %d directory sizes from %s", loaded.size(), storage.getAbsolutePath()));
+		}
+	}
+
+	/**
+	 * Saves the index to its storage file (if it changed).
+	 *
+	 * @throws IOException
+	 *             if the index can't be written.
+	 */
+	public void save() throws IOException {
+		final List<Map.Entry<String, Node>> entries;
+
+		synchronized (this) {
+			if (!modified) {
+				return;
+			}
+
+			// The least recently used directories come first
+			entries = new ArrayList<>(nodes.entrySet());
+
+			modified = false;
+		}
+
+		final File directory = storage.getParentFile();
+
+		if ((directory != null) && !directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException(String.format("Unable to create directory %s", directory.getAbsolutePath()));
+		}
+
+		// Write to a temporary file then rename it to never leave a truncated
+		// index behind
+		final File tempFile = new File(storage.getPath() + ".tmp");
+
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+				new FileOutputStream(tempFile))))) {
+
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(entries.size());
+
+			for (Map.Entry<String, Node> entry : entries) {
+				final Node node = entry.getValue();
+
+				output.writeUTF(entry.getKey());
+				output.writeLong(node.lastModified);
+				output.writeLong(node.files);
+				output.writeLong(node.fileSize);
+				output.writeInt(node.subdirectories.length);
+
+				for (String name : node.subdirectories) {
+					output.writeUTF(name);
+				}
+
+				output.writeLong(node.total.size);
+				output.writeLong(node.total.files);
+				output.writeLong(node.total.directories);
+			}
+		}
+
+		Files.move(tempFile.toPath(), storage.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		if (logger.isDebugEnabled()) {
+			logger.debug(String.format("Saved %d directory sizes to %s (%d bytes)", entries.size(),
+					storage.getAbsolutePath(), storage.length()));
+		}
+	}
+
+	public synchronized int size() {
+		return nodes.size();
+	}
+
+	public synchronized void clear() {
+		nodes.clear();
+
+		modified = true;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%s[%d directories, %d hits, %d misses]", getClass().getSimpleName(), nodes.size(), hits,
+				misses);
+	}
+}
@@ -0,0 +1,465 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.apache.commons.lang.Validate;
+import org.apache.log4j.Logger;
+
+import com.github.fritaly.dualcommander.event.DirectoryChangeEvent;
+import com.github.fritaly.dualcommander.event.DirectoryChangeListener;
+
+/**
+ * Application-wide registry of the directories currently displayed. Each
+ * directory is watched once whatever the number of listeners (reference
+ * counting) and stops being watched when its last listener is removed.
+ * <p>
+ * The events are coalesced per directory: the listeners are notified once
+ * the directory has been quiet for {@link #COALESCE_DELAY} ms (or at least
+ * every {@link #MAX_COALESCE_DELAY} ms during a burst) with the names of all
+ * the entries changed in between. The directories are also polled every
+ * {@link #POLL_INTERVAL} ms: a directory whose last modification date changed
+ * without any event being received (file systems not supporting the watch
+ * service, like some network shares) is reported as an overflow.
+ * <p>
+ * The directories are registered to the watch service by the watcher's
+ * thread (this may block on a stalled file system) so that registering a
+ * directory is immediate. The listeners are notified on the event dispatch
+ * thread. This class is thread-safe.
+ *
+ * @author francois_ritaly
+ */
+public final class DirectoryWatcher {
+
+	/**
+	 * Delay (in ms) without event after which the changes are notified.
+	 */
+	static final long COALESCE_DELAY = 200;
+
+	/**
+	 * Maximum delay (in ms) before notifying the changes of a burst.
+	 */
+	static final long MAX_COALESCE_DELAY = 1000;
+
+	/**
+	 * Interval (in ms) between 2 polls of the watched directories.
+	 */
+	static final long POLL_INTERVAL = 5000;
+
+	private final class Registration {
+
+		private final File directory;
+
+		private final List<DirectoryChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+		/**
+		 * The key returned by the watch service or null if the directory
+		 * couldn't be watched (polled only).
+		 */
+		private WatchKey watchKey;
+
+		/**
+		 * The names of the entries changed since the last notification.
+		 */
+		private Set<String> changes = new HashSet<>();
+
+		private boolean overflow;
+
+		/**
+		 * The dates of the first & last events since the last notification.
+		 */
+		private long firstEvent, lastEvent;
+
+		/**
+		 * Whether an event was received since the last poll.
+		 */
+		private boolean notifiedSincePoll;
+
+		/**
+		 * The last modification date of the directory when last polled.
+		 */
+		private long lastModified;
+
+		/**
+		 * Whether the directory was registered to the watch service (and its
+		 * date read) by the watcher's thread.
+		 */
+		private boolean initialized;
+
+		Registration(File directory) {
+			this.directory = directory;
+		}
+
+		/**
+		 * Notifies the listeners of the pending changes on the event dispatch
+		 * thread.
+		 */
+		void fireEvent() {
+			final DirectoryChangeEvent event = new DirectoryChangeEvent(DirectoryWatcher.this, directory, changes, overflow);
+
+			this.changes = new HashSet<>();
+			this.overflow = false;
+			this.firstEvent = 0;
+			this.lastEvent = 0;
+			this.notifiedSincePoll = true;
+
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					for (DirectoryChangeListener listener : listeners) {
+						listener.directoryChanged(event);
+					}
+				}
+			});
+
+			if (logger.isDebugEnabled()) {
+				logger.debug(String.format("Notifying %s", event));
+			}
+		}
+	}
+
+	private final Logger logger = Logger.getLogger(this.getClass());
+
+	/**
+	 * The registrations indexed by (canonical) directory.
+	 */
+	private final Map<File, Registration> registrations = new HashMap<>();
+
+	/**
+	 * The registrations waiting to be initialized by the watcher's thread.
+	 */
+	private final List<Registration> pendingRegistrations = new ArrayList<>();
+
+	/**
+	 * The registrations indexed by watch key.
+	 */
+	private final Map<WatchKey, Registration> watchKeys = new HashMap<>();
+
+	/**
+	 * The watch service (null if unavailable, in which case the directories
+	 * are only polled).
+	 */
+	private WatchService watchService;
+
+	private Thread thread;
+
+	private volatile boolean closed;
+
+	public DirectoryWatcher() {
+	}
+
+	/**
+	 * Registers the given listener to be notified of the changes of the given
+	 * directory. Returns immediately (doesn't access the directory).
+	 *
+	 * @param directory
+	 *            the (canonical) directory to watch. Can't be null.
+	 * @param listener
+	 *            the listener to notify. Can't be null.
+	 */
+	public synchronized void register(File directory, DirectoryChangeListener listener) {
+		Validate.notNull(directory, "The given directory is null");
+		Validate.notNull(listener, "The given listener is null");
+		Validate.isTrue(!closed, "The watcher is closed");
+
+		start();
+
+		Registration registration = registrations.get(directory);
+
+		if (registration == null) {
+			registration = new Registration(directory);
+
+			// The directory will be registered by the watcher's thread
+			registrations.put(directory, registration);
+			pendingRegistrations.add(registration);
+
+			if (logger.isDebugEnabled()) {
+				logger.debug(String.format("Started watching directory %s", directory.getAbsolutePath()));
+			}
+		}
+
+		registration.listeners.add(listener);
+	}
+
+	/**
+	 * Unregisters the given listener. The directory stops being watched once
+	 * it has no listener anymore.
+	 *
+	 * @param directory
+	 *            the watched directory. Can't be null.
+	 * @param listener
+	 *            the listener to unregister. Can't be null.
+	 */
+	public synchronized void unregister(File directory, DirectoryChangeListener listener) {
+		Validate.notNull(directory, "The given directory is null");
+		Validate.notNull(listener, "The given listener is null");
+
+		final Registration registration = registrations.get(directory);
+
+		if ((registration == null) || !registration.listeners.remove(listener) || !registration.listeners.isEmpty()) {
+			return;
+		}
+
+		registrations.remove(directory);
+		pendingRegistrations.remove(registration);
+
+		if (registration.watchKey != null) {
+			registration.watchKey.cancel();
+
+			watchKeys.remove(registration.watchKey);
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug(String.format("Stopped watching directory %s", directory.getAbsolutePath()));
+		}
+	}
+
+	/**
+	 * Returns the number of directories currently watched.
+	 */
+	public synchronized int size() {
+		return registrations.size();
+	}
+
+	/**
+	 * Starts the thread dispatching the events (if not already started).
+	 */
+	private void start() {
+		if (thread != null) {
+			return;
+		}
+
+		try {
+			this.watchService = FileSystems.getDefault().newWatchService();
+		} catch (IOException | UnsupportedOperationException e) {
+			logger.warn("The watch service is unavailable, the directories will be polled", e);
+		}
+
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					watch();
+				} catch (InterruptedException | ClosedWatchServiceException e) {
+					// The watcher was closed
+				}
+			}
+		}, "DirectoryWatcher");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	private void watch() throws InterruptedException {
+		long lastPoll = System.currentTimeMillis();
+
+		while (!closed) {
+			initializeRegistrations();
+
+			final WatchKey key;
+
+			if (watchService != null) {
+				key = watchService.poll(COALESCE_DELAY, TimeUnit.MILLISECONDS);
+			} else {
+				Thread.sleep(COALESCE_DELAY);
+
+				key = null;
+			}
+
+			final long now = System.currentTimeMillis();
+
+			synchronized (this) {
+				if (key != null) {
+					final Registration registration = watchKeys.get(key);
+
+					// Consume the events even if the directory isn't watched
+					// anymore
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (registration == null) {
+							continue;
+						}
+						if (event.kind() == OVERFLOW) {
+							registration.overflow = true;
+						} else {
+							registration.changes.add(((Path) event.context()).toString());
+						}
+						if (registration.firstEvent == 0) {
+							registration.firstEvent = now;
+						}
+
+						registration.lastEvent = now;
+					}
+
+					key.reset();
+				}
+
+				// Notify the changes of the directories quiet for long enough
+				for (Registration registration : registrations.values()) {
+					if (registration.changes.isEmpty() && !registration.overflow) {
+						continue;
+					}
+					if ((now - registration.lastEvent >= COALESCE_DELAY)
+							|| (now - registration.firstEvent >= MAX_COALESCE_DELAY)) {
+						registration.fireEvent();
+					}
+				}
+			}
+
+			if (now - lastPoll >= POLL_INTERVAL) {
+				poll();
+
+				lastPoll = now;
+			}
+		}
+	}
+
+	/**
+	 * Registers the directories pending to the watch service and reads their
+	 * date.
+	 */
+	private void initializeRegistrations() {
+		final List<Registration> list;
+
+		synchronized (this) {
+			if (pendingRegistrations.isEmpty()) {
+				return;
+			}
+
+			list = new ArrayList<>(pendingRegistrations);
+
+			pendingRegistrations.clear();
+		}
+
+		for (Registration registration : list) {
+			// Access the directory outside the lock (may be slow)
+			final long lastModified = registration.directory.lastModified();
+
+			WatchKey watchKey = null;
+
+			if (watchService != null) {
+				try {
+					watchKey = registration.directory.toPath().register(watchService, ENTRY_CREATE, ENTRY_DELETE,
+							ENTRY_MODIFY);
+				} catch (IOException | UnsupportedOperationException e) {
+					logger.warn(String.format("Unable to watch directory %s, polling it instead",
+							registration.directory.getAbsolutePath()), e);
+				}
+			}
+
+			synchronized (this) {
+				if (registrations.get(registration.directory) != registration) {
+					// Unregistered in the mean time
+					if (watchKey != null) {
+						watchKey.cancel();
+					}
+
+					continue;
+				}
+
+				registration.lastModified = lastModified;
+				registration.watchKey = watchKey;
+				registration.initialized = true;
+
+				if (watchKey != null) {
+					watchKeys.put(watchKey, registration);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Detects the directories modified without any event being received.
+	 */
+	private void poll() {
+		final List<Registration> list;
+
+		synchronized (this) {
+			list = new ArrayList<>(registrations.values());
+		}
+
+		for (Registration registration : list) {
+			// Stat the directory outside the lock (may be slow)
+			final long lastModified = registration.directory.lastModified();
+
+			synchronized (this) {
+				if ((registrations.get(registration.directory) != registration) || !registration.initialized) {
+					// Unregistered in the mean time (or not yet initialized)
+					continue;
+				}
+				if ((lastModified != registration.lastModified) && !registration.notifiedSincePoll
+						&& registration.changes.isEmpty()) {
+					// The directory changed silently, it must be listed again
+					registration.overflow = true;
+					registration.fireEvent();
+				}
+
+				registration.lastModified = lastModified;
+				registration.notifiedSincePoll = false;
+			}
+		}
+	}
+
+	/**
+	 * Stops watching all the directories.
+	 */
+	public void close() {
+		this.closed = true;
+
+		final Thread thread;
+
+		synchronized (this) {
+			registrations.clear();
+			pendingRegistrations.clear();
+			watchKeys.clear();
+
+			thread = this.thread;
+		}
+
+		if (watchService != null) {
+			try {
+				watchService.close();
+			} catch (IOException e) {
+				logger.warn("Error when closing the watch service", e);
+			}
+		}
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.awt.Frame;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.File;
+
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JSplitPane;
+import javax.swing.Timer;
+
+import net.miginfocom.swing.MigLayout;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.Validate;
+import org.apache.log4j.Logger;
+
+/**
+ * Dialog displaying the disk usage of a directory: a treemap of its
+ * sub-directories and the histogram of the file extensions. The directory is
+ * scanned in parallel (see {@link DiskUsageScan}) and the views are refreshed
+ * periodically from the aggregated results while the scan progresses. The
+ * scan is cancelled when the dialog is closed.
+ *
+ * @author francois_ritaly
+ */
+public class DiskUsageDialog extends JDialog {
+
+	private static final long serialVersionUID = -2419003866207366286L;
+
+	/**
+	 * Delay (in ms) between 2 refreshes of the views while scanning.
+	 */
+	private static final int REFRESH_DELAY = 250;
+
+	private final Logger logger = Logger.getLogger(this.getClass());
+
+	private final DiskUsageScan scan;
+
+	private final TreemapPanel treemap;
+
+	private final ExtensionHistogramPanel histogram;
+
+	private final JLabel pathLabel = new JLabel(" ");
+
+	private final JLabel statusLabel = new JLabel(" ");
+
+	private final JButton upButton = new JButton("Up", Icons.PREVIOUS_ICON);
+
+	private final Timer timer;
+
+	public DiskUsageDialog(Frame owner, File directory) {
+		super(owner, false);
+
+		Validate.notNull(directory, "The given directory is null");
+
+		setTitle(String.format("Disk Usage - %s", directory.getAbsolutePath()));
+
+		this.scan = new DiskUsageScan(directory);
+		this.treemap = new TreemapPanel(scan.getRoot());
+		this.histogram = new ExtensionHistogramPanel();
+
+		this.treemap.addPropertyChangeListener(TreemapPanel.PROPERTY_ROOT, new PropertyChangeListener() {
+			@Override
+			public void propertyChange(PropertyChangeEvent evt) {
+				updatePath();
+			}
+		});
+
+		this.upButton.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				treemap.zoomOut();
+			}
+		});
+
+		this.pathLabel.setFont(Utils.getBoldFont(Utils.getDefaultFont()));
+		this.statusLabel.setFont(Utils.getDefaultFont());
+		this.statusLabel.setBorder(Utils.createRaisedBevelBorder());
+
+		final JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, treemap, histogram);
+		splitPane.setResizeWeight(0.75);
+
+		setLayout(new MigLayout("insets 4px", "[grow][]", "[][grow][]"));
+
+		add(pathLabel, "growx");
+		add(upButton, "wrap");
+		add(splitPane, "grow, span 2, wrap");
+		add(statusLabel, "growx, span 2");
+
+		this.timer = new Timer(REFRESH_DELAY, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				refresh();
+			}
+		});
+
+		setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+		pack();
+		setLocationRelativeTo(owner);
+
+		updatePath();
+	}
+
+	/**
+	 * Starts the scan and displays the dialog.
+	 */
+	public void start() {
+		scan.start();
+		timer.start();
+
+		setVisible(true);
+	}
+
+	/**
+	 * Refreshes the views from the results of the scan so far.
+	 */
+	private void refresh() {
+		final boolean done = scan.isDone();
+
+		treemap.refresh();
+		histogram.setStats(scan.getExtensionStats());
+
+		final DiskUsageScan.Node root = scan.getRoot();
+
+		statusLabel.setText(String.format("%s %d files, %d folders, %s in %.1f s%s", done ? "Scanned" : "Scanning ...",
+				root.getFiles(), scan.getDirectories(), FileUtils.byteCountToDisplaySize(root.getSize()),
+				scan.getElapsedTime() / 1000.0, (scan.getErrors() > 0) ? String.format(" (%d unreadable folders)",
+						scan.getErrors()) : ""));
+
+		updatePath();
+
+		if (done) {
+			// The results are final
+			timer.stop();
+
+			if (logger.isDebugEnabled()) {
+				logger.debug(String.format("Scanned %s in %d ms", scan, scan.getElapsedTime()));
+			}
+		}
+	}
+
+	private void updatePath() {
+		final DiskUsageScan.Node root = treemap.getRoot();
+
+		pathLabel.setText(String.format("%s (%s)", root.getFile().getAbsolutePath(),
+				FileUtils.byteCountToDisplaySize(root.getSize())));
+
+		upButton.setEnabled(root.getParent() != null);
+	}
+
+	@Override
+	public void dispose() {
+		timer.stop();
+
+		if (!scan.isDone()) {
+			scan.cancel();
+		}
+
+		super.dispose();
+	}
+}
@@ -0,0 +1,437 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.Validate;
+import org.apache.log4j.Logger;
+
+/**
+ * Computes the disk usage of a directory tree by walking it in parallel (one
+ * fork/join task per directory like {@link ParallelScan}). The results are
+ * aggregated while the scan progresses and can be read at any time: a tree of
+ * {@link Node}s (one per directory, the files of a directory are only
+ * aggregated into their total) and the number & size of the files per
+ * extension. The size of a directory is added to its ancestors once listed so
+ * the sizes grow until the scan completes.
+ * <p>
+ * The symbolic links aren't followed (they're counted as files). The
+ * directories are de-duplicated by file key but the files aren't (a
+ * hard-linked file is counted once per link) to bound the memory used when
+ * scanning millions of files.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author francois_ritaly
+ */
+public final class DiskUsageScan {
+
+	private static final Node[] NO_CHILDREN = new Node[0];
+
+	/**
+	 * A directory of the scanned tree.
+	 */
+	public static final class Node {
+
+		private final Node parent;
+
+		private final File file;
+
+		/**
+		 * The total size & number of the files in the directory and its
+		 * sub-directories scanned so far.
+		 */
+		private final AtomicLong size = new AtomicLong(), files = new AtomicLong();
+
+		/**
+		 * The total size & number of the files directly inside the directory
+		 * (set once listed).
+		 */
+		private volatile long ownSize, ownFiles;
+
+		/**
+		 * The sub-directories (set once the directory is listed).
+		 */
+		private volatile Node[] children = NO_CHILDREN;
+
+		Node(Node parent, File file) {
+			this.parent = parent;
+			this.file = file;
+		}
+
+		public Node getParent() {
+			return parent;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		public String getName() {
+			return file.getName().isEmpty() ? file.getPath() : file.getName();
+		}
+
+		public long getSize() {
+			return size.get();
+		}
+
+		public long getFiles() {
+			return files.get();
+		}
+
+		public long getOwnSize() {
+			return ownSize;
+		}
+
+		public long getOwnFiles() {
+			return ownFiles;
+		}
+
+		/**
+		 * Returns the sub-directories listed so far sorted by decreasing size
+		 * (at the time of the call).
+		 *
+		 * @return a new list. Never returns null.
+		 */
+		public List<Node> getChildren() {
+			final List<Node> list = new ArrayList<>(children.length);
+
+			Collections.addAll(list, children);
+
+			// The sizes may change during the sort, sort a consistent copy
+			final Map<Node, Long> sizes = new HashMap<>(list.size() * 2);
+
+			for (Node node : list) {
+				sizes.put(node, node.getSize());
+			}
+
+			Collections.sort(list, new Comparator<Node>() {
+				@Override
+				public int compare(Node n1, Node n2) {
+					return sizes.get(n2).compareTo(sizes.get(n1));
+				}
+			});
+
+			return list;
+		}
+
+		/**
+		 * Adds the size & number of files of a directory just listed to this
+		 * node and its ancestors.
+		 */
+		private void add(long size, long files) {
+			for (Node node = this; node != null; node = node.parent) {
+				node.size.addAndGet(size);
+				node.files.addAndGet(files);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s[%s, %d bytes, %d files]", getClass().getSimpleName(), file, getSize(), getFiles());
+		}
+	}
+
+	/**
+	 * The number & total size of the files with a given extension.
+	 */
+	public static final class ExtensionStats {
+
+		private final String extension;
+
+		private final AtomicLong count = new AtomicLong(), size = new AtomicLong();
+
+		ExtensionStats(String extension) {
+			this.extension = extension;
+		}
+
+		/**
+		 * Returns the (folded) extension or an empty string for the files
+		 * without extension.
+		 */
+		public String getExtension() {
+			return extension;
+		}
+
+		public long getCount() {
+			return count.get();
+		}
+
+		public long getSize() {
+			return size.get();
+		}
+	}
+
+	private final class DirectoryTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 3364713207516045017L;
+
+		private final Node node;
+
+		DirectoryTask(Node node) {
+			this.node = node;
+		}
+
+		@Override
+		protected void compute() {
+			final List<Node> children = new ArrayList<>();
+
+			// Aggregate the extensions locally to limit the contention
+			final Map<String, long[]> extensions = new HashMap<>();
+
+			long size = 0, files = 0;
+
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(node.file.toPath())) {
+				for (Path path : stream) {
+					if (cancelled) {
+						return;
+					}
+
+					final BasicFileAttributes attributes;
+
+					try {
+						attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+					} catch (IOException e) {
+						// The entry was probably deleted in the mean time
+						continue;
+					}
+
+					if (attributes.isDirectory()) {
+						final Object key = attributes.fileKey();
+
+						if ((key == null) || directoryKeys.add(key)) {
+							children.add(new Node(node, path.toFile()));
+						}
+					} else {
+						size += attributes.size();
+						files++;
+
+						final String extension = FileEntry.getExtension(path.getFileName().toString(), false);
+
+						long[] stats = extensions.get(extension);
+
+						if (stats == null) {
+							extensions.put(extension, stats = new long[2]);
+						}
+
+						stats[0]++;
+						stats[1] += attributes.size();
+					}
+				}
+			} catch (IOException | DirectoryIteratorException e) {
+				// The entries iterated so far are kept, go on with the
+				// sub-directories found
+				if (logger.isDebugEnabled()) {
+					logger.debug(String.format("Unable to scan directory %s: %s", node.file, e.getMessage()));
+				}
+
+				errors.incrementAndGet();
+			}
+
+			node.children = children.toArray(new Node[children.size()]);
+			node.ownSize = size;
+			node.ownFiles = files;
+			node.add(size, files);
+
+			directories.addAndGet(children.size());
+
+			for (Map.Entry<String, long[]> entry : extensions.entrySet()) {
+				ExtensionStats stats = extensionStats.get(entry.getKey());
+
+				if (stats == null) {
+					final ExtensionStats created = new ExtensionStats(entry.getKey());
+
+					stats = extensionStats.putIfAbsent(entry.getKey(), created);
+
+					if (stats == null) {
+						stats = created;
+					}
+				}
+
+				stats.count.addAndGet(entry.getValue()[0]);
+				stats.size.addAndGet(entry.getValue()[1]);
+			}
+
+			// Scan the sub-directories in parallel
+			final List<DirectoryTask> tasks = new ArrayList<>(children.size());
+
+			for (Node child : children) {
+				tasks.add(new DirectoryTask(child));
+			}
+
+			invokeAll(tasks);
+		}
+	}
+
+	private final Logger logger = Logger.getLogger(this.getClass());
+
+	private final Node root;
+
+	private final ConcurrentMap<String, ExtensionStats> extensionStats = new ConcurrentHashMap<>();
+
+	/**
+	 * The keys of the directories already visited.
+	 */
+	private final Set<Object> directoryKeys = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+
+	private final AtomicLong directories = new AtomicLong(), errors = new AtomicLong();
+
+	private volatile boolean cancelled;
+
+	private final ForkJoinPool pool;
+
+	private ForkJoinTask<?> task;
+
+	private long startTime, endTime;
+
+	public DiskUsageScan(File directory) {
+		Validate.notNull(directory, "The given directory is null");
+
+		this.root = new Node(null, directory);
+		this.pool = new ForkJoinPool();
+	}
+
+	/**
+	 * Starts the scan in the background. Returns immediately.
+	 */
+	public synchronized void start() {
+		Validate.isTrue(task == null, "The scan has already been started");
+
+		this.startTime = System.currentTimeMillis();
+
+		this.task = pool.submit(new RecursiveAction() {
+
+			private static final long serialVersionUID = -4329516180612245712L;
+
+			@Override
+			protected void compute() {
+				try {
+					new DirectoryTask(root).invoke();
+				} finally {
+					synchronized (DiskUsageScan.this) {
+						endTime = System.currentTimeMillis();
+					}
+
+					// All the tasks completed, release the threads
+					pool.shutdown();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Cancels the scan in progress (if any). The results stop growing.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+
+		pool.shutdownNow();
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Tells whether the scan completed (the results are final).
+	 */
+	public synchronized boolean isDone() {
+		return (task != null) && task.isDone() && !cancelled;
+	}
+
+	/**
+	 * Returns the duration (in ms) of the scan so far.
+	 */
+	public synchronized long getElapsedTime() {
+		if (task == null) {
+			return 0;
+		}
+
+		return ((endTime != 0) ? endTime : System.currentTimeMillis()) - startTime;
+	}
+
+	public Node getRoot() {
+		return root;
+	}
+
+	/**
+	 * Returns the number of directories found so far (excluding the scanned
+	 * directory).
+	 */
+	public long getDirectories() {
+		return directories.get();
+	}
+
+	/**
+	 * Returns the number of directories which couldn't be listed.
+	 */
+	public long getErrors() {
+		return errors.get();
+	}
+
+	/**
+	 * Returns the statistics of the extensions found so far sorted by
+	 * decreasing size (at the time of the call).
+	 *
+	 * @return a new list. Never returns null.
+	 */
+	public List<ExtensionStats> getExtensionStats() {
+		final List<ExtensionStats> list = new ArrayList<>(extensionStats.values());
+
+		final Map<ExtensionStats, Long> sizes = new HashMap<>(list.size() * 2);
+
+		for (ExtensionStats stats : list) {
+			sizes.put(stats, stats.getSize());
+		}
+
+		Collections.sort(list, new Comparator<ExtensionStats>() {
+			@Override
+			public int compare(ExtensionStats s1, ExtensionStats s2) {
+				return sizes.get(s2).compareTo(sizes.get(s1));
+			}
+		});
+
+		return list;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%s, %d bytes, %d files, %d directories]", getClass().getSimpleName(), root.file,
+				root.getSize(), root.getFiles(), getDirectories());
+	}
+}
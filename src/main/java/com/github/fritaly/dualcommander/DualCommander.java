@@ -17,6 +17,7 @@
 package com.github.fritaly.dualcommander;
 
 import java.awt.Cursor;
+import java.awt.Window;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.FocusEvent;
@@ -29,7 +30,9 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.prefs.BackingStoreException;
 import java.util.prefs.Preferences;
 
@@ -42,6 +45,7 @@ import javax.swing.JButton;
 import javax.swing.JComponent;
 import javax.swing.JDialog;
 import javax.swing.JFrame;
+import javax.swing.JLabel;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
@@ -51,6 +55,7 @@ import javax.swing.JSeparator;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.UIManager;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
@@ -194,6 +199,11 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 
 		private static final long serialVersionUID = -4681732083985135686L;
 
+		/**
+		 * The maximum number of errors listed when the plan is incomplete.
+		 */
+		private static final int MAX_ERRORS_DISPLAYED = 10;
+
 		public CopyAction() {
 			super("F5 Copy", Icons.COPY_ICON);
 		}
@@ -207,83 +217,148 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 				return;
 			}
 
-			// Count the # of files / folders to copy
-			final Scan scan = Utils.scan(selection);
+			// Store the inactive pane before the active one loses the focus
+			final TabbedPane inactivePane = getInactivePane();
 
-			final String message;
+			// Plan the copy (walking the selection once) while the user decides
+			final CopyPlan plan = new CopyPlan(selection, inactivePane.getActiveBrowser().getDirectory());
 
-			if (scan.getFiles() > 0) {
-				if (scan.getDirectories() > 0) {
-					message = String.format("Do you really want to copy %d file(s) & %d folder(s)", scan.getFiles(),
-							scan.getDirectories());
-				} else {
-					message = String.format("Do you really want to copy %d file(s)", scan.getFiles());
+			final SwingWorker<Void, Void> planner = new SwingWorker<Void, Void>() {
+				@Override
+				protected Void doInBackground() throws Exception {
+					plan.build();
+
+					return null;
+				}
+
+				@Override
+				protected void done() {
+					try {
+						get();
+					} catch (Exception e1) {
+						logger.error("Error when planning the copy", e1);
+					}
 				}
+			};
+
+			planner.execute();
+
+			if (!confirm("copy", plan)) {
+				// The plan is useless once the user decided
+				plan.cancel();
+
+				return;
+			}
+
+			if (planner.isDone()) {
+				execute(plan, inactivePane);
 			} else {
-				message = String.format("Do you really want to copy %d folders(s)", scan.getDirectories());
+				// Execute the plan once complete (the state changes are
+				// notified on the EDT)
+				setWaitCursor();
+
+				planner.addPropertyChangeListener(new PropertyChangeListener() {
+					@Override
+					public void propertyChange(PropertyChangeEvent evt) {
+						if ("state".equals(evt.getPropertyName()) && (evt.getNewValue() == SwingWorker.StateValue.DONE)) {
+							setDefaultCursor();
+
+							execute(plan, inactivePane);
+						}
+					}
+				});
 			}
+		}
 
-			// TODO Set icon on dialog boxes
-			final int reply = JOptionPane.showConfirmDialog(DualCommander.this, message, "Please confirm",
-					JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+		/**
+		 * Executes the given (complete) plan in a background task. If some
+		 * entries couldn't be read when building the plan, the user is asked
+		 * whether to copy the other entries first.
+		 */
+		private void execute(final CopyPlan plan, final TabbedPane inactivePane) {
+			if (!plan.isDone()) {
+				// The build of the plan failed (the error was logged)
+				JOptionPane.showMessageDialog(DualCommander.this, "The selection couldn't be scanned, nothing was copied",
+						"Error", JOptionPane.ERROR_MESSAGE);
 
-			if (reply == JOptionPane.YES_OPTION) {
-				// Store the inactive pane before the active one loses the focus
-				final TabbedPane inactivePane = getInactivePane();
+				return;
+			}
 
-				// Copy the file(s) in a background task
-				final SwingWorker<Void, Void> task = new SwingWorker<Void, Void>() {
-					@Override
-					protected Void doInBackground() throws Exception {
-						// TODO Use a progress bar (to notify the progress)
-						final File targetDir = inactivePane.getActiveBrowser().getDirectory();
+			if (plan.getErrorCount() > 0) {
+				logger.warn(String.format("%d error(s) when planning the copy: %s", plan.getErrorCount(),
+						plan.getErrors()));
 
-						setWaitCursor();
+				final StringBuilder builder = new StringBuilder();
 
-						try {
-							for (File file : selection) {
-								// TODO Check whether the target file already exists or
-								// not
-
-								if (file.isFile()) {
-									FileUtils.copyFileToDirectory(file, targetDir, true);
-
-									if (logger.isInfoEnabled()) {
-										logger.info(String.format("Copied file %s to directory %s", file.getAbsolutePath(),
-												targetDir.getAbsolutePath()));
-									}
-								} else if (file.isDirectory()) {
-									FileUtils.copyDirectoryToDirectory(file, targetDir);
-
-									if (logger.isInfoEnabled()) {
-										logger.info(String.format("Copied directory %s to directory %s", file.getAbsolutePath(),
-												targetDir.getAbsolutePath()));
-									}
-								}
-							}
+				builder.append(String.format("%d entr%s couldn't be read and won't be copied:\n", plan.getErrorCount(),
+						(plan.getErrorCount() > 1) ? "ies" : "y"));
 
-							if (logger.isInfoEnabled()) {
-								logger.info(String.format("Copied %d file(s)", selection.size()));
-							}
-						} catch (IOException e1) {
-							JOptionPane.showMessageDialog(DualCommander.this, "An error occured when copying the file(s)", "Error",
-									JOptionPane.ERROR_MESSAGE);
-						}
+				int count = 0;
 
-						return null;
+				for (Map.Entry<Path, IOException> entry : plan.getErrors().entrySet()) {
+					if (count++ == MAX_ERRORS_DISPLAYED) {
+						builder.append("...\n");
+						break;
 					}
 
-					@Override
-					protected void done() {
-						// Refresh the target panel (the inactive one)
-						inactivePane.getActiveBrowser().refresh();
+					builder.append(String.format("- %s (%s)\n", entry.getKey(), entry.getValue().getMessage()));
+				}
 
-						setDefaultCursor();
-					}
-				};
+				builder.append("\nDo you want to copy the other entries ?");
 
-				task.execute();
+				final int answer = JOptionPane.showConfirmDialog(DualCommander.this, builder.toString(),
+						"Incomplete copy", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+
+				if (answer != JOptionPane.YES_OPTION) {
+					return;
+				}
 			}
+
+			// Copy the file(s) in a background task
+			final SwingWorker<Void, Void> task = new SwingWorker<Void, Void>() {
+				@Override
+				protected Void doInBackground() throws Exception {
+					// TODO Use a progress bar (to notify the progress)
+					setWaitCursor();
+
+					// The free space is checked before copying anything
+					plan.execute();
+
+					if (logger.isInfoEnabled()) {
+						logger.info(String.format("Copied %d file(s) & %d folder(s) [%d bytes] to directory %s",
+								plan.getFiles(), plan.getDirectories(), plan.getTotalSize(), plan.getTargetDirectory()
+										.getAbsolutePath()));
+					}
+
+					return null;
+				}
+
+				@Override
+				protected void done() {
+					try {
+						get();
+					} catch (Exception e1) {
+						logger.error("Error when copying the file(s)", e1);
+
+						final Throwable cause = (e1.getCause() != null) ? e1.getCause() : e1;
+
+						JOptionPane.showMessageDialog(DualCommander.this, String.format(
+								"An error occured when copying the file(s): %s", cause.getMessage()), "Error",
+								JOptionPane.ERROR_MESSAGE);
+					}
+
+					// The copy may have overwritten files without changing
+					// the directory's last modification date
+					directoryCache.invalidate(inactivePane.getActiveBrowser().getDirectory());
+
+					// Refresh the target panel (the inactive one)
+					inactivePane.getActiveBrowser().refresh();
+
+					setDefaultCursor();
+				}
+			};
+
+			task.execute();
 		}
 	}
 
@@ -304,28 +379,8 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 				return;
 			}
 
-			// Count the # of files / folders to move
-			final Scan scan = Utils.scan(selection);
-
-			final String message;
-
-			if (scan.getFiles() > 0) {
-				if (scan.getDirectories() > 0) {
-					message = String.format("Do you really want to move %d file(s) & %d folder(s)", scan.getFiles(),
-							scan.getDirectories());
-				} else {
-					message = String.format("Do you really want to move %d file(s)", scan.getFiles());
-				}
-			} else {
-				message = String.format("Do you really want to move %d folders(s)", scan.getDirectories());
-			}
-
-			// TODO Set icon on dialog boxes
-			final int reply = JOptionPane.showConfirmDialog(DualCommander.this,
-					message, "Please confirm",
-					JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
-
-			if (reply == JOptionPane.YES_OPTION) {
+			// Count the # of files / folders to move while the user decides
+			if (confirm("move", selection)) {
 				// Store the inactive pane before the active one loses the focus
 				final TabbedPane inactivePane = getInactivePane();
 
@@ -361,6 +416,9 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 
 					@Override
 					protected void done() {
+						directoryCache.invalidate(leftPane.getActiveBrowser().getDirectory());
+						directoryCache.invalidate(rightPane.getActiveBrowser().getDirectory());
+
 						// Refresh the 2 panes
 						leftPane.getActiveBrowser().refresh();
 						rightPane.getActiveBrowser().refresh();
@@ -405,27 +463,8 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 				return;
 			}
 
-			// Count the # of files / folders to delete
-			final Scan scan = Utils.scan(selection);
-
-			final String message;
-
-			if (scan.getFiles() > 0) {
-				if (scan.getDirectories() > 0) {
-					message = String.format("Do you really want to delete %d file(s) & %d folder(s)", scan.getFiles(),
-							scan.getDirectories());
-				} else {
-					message = String.format("Do you really want to delete %d file(s)", scan.getFiles());
-				}
-			} else {
-				message = String.format("Do you really want to delete %d folders(s)", scan.getDirectories());
-			}
-
-			// TODO Set icon on dialog boxes
-			final int reply = JOptionPane.showConfirmDialog(DualCommander.this, message, "Please confirm",
-					JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
-
-			if (reply == JOptionPane.YES_OPTION) {
+			// Count the # of files / folders to delete while the user decides
+			if (confirm("delete", selection)) {
 				// Store the active pane before it loses the focus
 				final TabbedPane activePane = getActivePane();
 
@@ -437,7 +476,12 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 						setWaitCursor();
 
 						for (File file : selection) {
-							Utils.deleteRecursively(file, null);
+							final TreeWalker walker = Utils.deleteRecursively(file, null);
+
+							if (walker.getErrorCount() > 0) {
+								logger.warn(String.format("Unable to delete %d entries of %s: %s", walker.getErrorCount(),
+										file.getAbsolutePath(), walker.getErrors()));
+							}
 						}
 
 						if (logger.isInfoEnabled()) {
@@ -449,6 +493,8 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 
 					@Override
 					protected void done() {
+						directoryCache.invalidate(activePane.getActiveBrowser().getDirectory());
+
 						// Refresh the source panel (the active one)
 						activePane.getActiveBrowser().refresh();
 
@@ -461,6 +507,21 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 		}
 	}
 
+	private final class DiskUsageAction extends AbstractAction {
+
+		private static final long serialVersionUID = 7707462745531069218L;
+
+		public DiskUsageAction() {
+			super("Disk Usage", Icons.DRIVE_ICON);
+		}
+
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			// Scan the directory of the active browser
+			new DiskUsageDialog(DualCommander.this, activePane.getActiveBrowser().getDirectory()).start();
+		}
+	}
+
 	private final class QuitAction extends AbstractAction {
 
 		private static final long serialVersionUID = 388422465301643805L;
@@ -476,6 +537,109 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 		}
 	}
 
+	/**
+	 * Asks the user to confirm the given operation on the given selection. The
+	 * dialog opens immediately and reports the number of files & folders
+	 * selected while they're counted in the background.
+	 *
+	 * @param verb
+	 *            the operation to confirm (e.g. "copy").
+	 * @param selection
+	 *            the files selected. Can't be null.
+	 * @return whether the user confirmed the operation.
+	 */
+	private boolean confirm(String verb, List<File> selection) {
+		final ParallelScan scan = new ParallelScan(selection);
+
+		scan.start();
+
+		try {
+			return confirm(verb, scan);
+		} finally {
+			// The scan is useless once the user decided
+			scan.cancel();
+		}
+	}
+
+	/**
+	 * Asks the user to confirm the given operation. The dialog reports the
+	 * number of files & folders counted so far by the given scan (started by
+	 * the caller).
+	 *
+	 * @param verb
+	 *            the operation to confirm (e.g. "copy").
+	 * @param scan
+	 *            the scan counting the files selected. Can't be null.
+	 * @return whether the user confirmed the operation.
+	 */
+	private boolean confirm(String verb, final ScanProgress scan) {
+		final JLabel countsLabel = new JLabel("Scanning ...");
+
+		final JOptionPane optionPane = new JOptionPane();
+		optionPane.setMessage(new Object[] { String.format("Do you really want to %s the selection ?", verb), countsLabel });
+		optionPane.setMessageType(JOptionPane.WARNING_MESSAGE);
+		optionPane.setOptionType(JOptionPane.YES_NO_OPTION);
+
+		final JButton yesButton = preferencesAction.getButton(optionPane, "Yes", Icons.ACCEPT_ICON);
+		final JButton cancelButton = preferencesAction.getButton(optionPane, "Cancel", Icons.CANCEL_ICON);
+
+		optionPane.setOptions(new Object[] { yesButton, cancelButton });
+
+		// Refresh the message periodically with the counts
+		final Timer timer = new Timer(100, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				final String counts;
+
+				if (scan.getFiles() > 0) {
+					if (scan.getDirectories() > 0) {
+						counts = String.format("%d file(s) & %d folder(s)", scan.getFiles(), scan.getDirectories());
+					} else {
+						counts = String.format("%d file(s)", scan.getFiles());
+					}
+				} else {
+					counts = String.format("%d folder(s)", scan.getDirectories());
+				}
+
+				final String size = FileUtils.byteCountToDisplaySize(scan.getTotalSize());
+
+				final String errors = (scan.getErrorCount() > 0) ? String.format(", %d unreadable entr%s",
+						scan.getErrorCount(), (scan.getErrorCount() > 1) ? "ies" : "y") : "";
+
+				if (scan.isDone()) {
+					countsLabel.setText(String.format("%s [%s%s]", counts, size, errors));
+
+					((Timer) e.getSource()).stop();
+				} else if (scan.isFailed()) {
+					countsLabel.setText(String.format("%s [%s%s] (scan failed)", counts, size, errors));
+
+					((Timer) e.getSource()).stop();
+				} else {
+					countsLabel.setText(String.format("%s [%s%s] (scanning ...)", counts, size, errors));
+				}
+
+				// Enlarge the dialog if the counts no longer fit
+				final Window window = SwingUtilities.getWindowAncestor(countsLabel);
+
+				if ((window != null) && (countsLabel.getPreferredSize().width > countsLabel.getWidth())) {
+					window.pack();
+				}
+			}
+		});
+		timer.setInitialDelay(0);
+		timer.start();
+
+		try {
+			// TODO Set icon on dialog boxes
+			final JDialog dialog = optionPane.createDialog(DualCommander.this, "Please confirm");
+			dialog.setVisible(true);
+		} finally {
+			timer.stop();
+		}
+
+		return "Yes".equals(optionPane.getValue());
+	}
+
 	private static JButton createButton(Action action) {
 		Validate.notNull(action, "The given action is null");
 
@@ -507,6 +671,8 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 
 	private final QuitAction quitAction = new QuitAction();
 
+	private final DiskUsageAction diskUsageAction = new DiskUsageAction();
+
 	// --- Buttons --- //
 
 	private final JButton viewButton = createButton(viewAction);
@@ -541,6 +707,39 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 
 	private final UserPreferences preferences = new UserPreferences();
 
+	/**
+	 * Watches the directories displayed by all the browsers.
+	 */
+	private final DirectoryWatcher directoryWatcher = new DirectoryWatcher();
+
+	/**
+	 * Executes the file system calls of all the browsers with deadlines.
+	 */
+	private final IoExecutor ioExecutor = new IoExecutor();
+
+	/**
+	 * The directory listings shared by all the browsers.
+	 */
+	private final DirectoryCache directoryCache = new DirectoryCache(ioExecutor);
+
+	/**
+	 * The recursive sizes of the directories, persisted on exit.
+	 */
+	private final DirectorySizeIndex sizeIndex = new DirectorySizeIndex(new File(System.getProperty("user.home"),
+			".dual-commander/sizes.index"));
+
+	/**
+	 * Releases the listings of the inactive tabs (created once the panes are
+	 * initialized).
+	 */
+	private final TabHibernator hibernator;
+
+	/**
+	 * The listings persisted on exit to be displayed at the next start.
+	 */
+	private final ListingSnapshots snapshots = new ListingSnapshots(new File(System.getProperty("user.home"),
+			".dual-commander/snapshots"));
+
 	public DualCommander() {
 		// TODO Generate a fat jar at build time
 		super(String.format("Dual Commander %s", Utils.getApplicationVersion()));
@@ -561,6 +760,7 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 
 		// Create a menu bar
 		final JMenu fileMenu = new JMenu("File");
+		fileMenu.add(new JMenuItem(diskUsageAction));
 		fileMenu.add(new JMenuItem(preferencesAction));
 		fileMenu.add(new JSeparator());
 		fileMenu.add(new JMenuItem(quitAction));
@@ -574,13 +774,22 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 
 		setJMenuBar(menuBar);
 
-		this.leftPane = new TabbedPane(preferences);
+		// Load the directory sizes in the background, they're only displayed
+		// once computed
+		this.ioExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				sizeIndex.load();
+			}
+		});
+
+		this.leftPane = new TabbedPane(preferences, directoryCache, directoryWatcher, ioExecutor, sizeIndex, snapshots);
 		this.leftPane.setName("Left");
 		this.leftPane.addChangeListener(this);
 		this.leftPane.addKeyListener(this);
 		this.leftPane.addFocusListener(this);
 
-		this.rightPane = new TabbedPane(preferences);
+		this.rightPane = new TabbedPane(preferences, directoryCache, directoryWatcher, ioExecutor, sizeIndex, snapshots);
 		this.rightPane.setName("Right");
 		this.rightPane.addChangeListener(this);
 		this.rightPane.addKeyListener(this);
@@ -613,6 +822,7 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 		inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F6, 0, true), "move");
 		inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F7, 0, true), "mkdir");
 		inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F8, 0, true), "delete");
+		inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F9, 0, true), "diskUsage");
 		inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F4, KeyEvent.ALT_DOWN_MASK), "quit");
 
 		final ActionMap actionMap = this.leftPane.getActionMap();
@@ -622,6 +832,7 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 		actionMap.put("move", moveAction);
 		actionMap.put("mkdir", mkdirAction);
 		actionMap.put("delete", deleteAction);
+		actionMap.put("diskUsage", diskUsageAction);
 		actionMap.put("quit", quitAction);
 
 		addWindowListener(this);
@@ -645,7 +856,10 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 		}
 
 		// Init the buttons
-		refreshButtons(this.leftPane.getActiveBrowser().getSelection());
+		refreshButtons(this.leftPane.getActiveBrowser());
+
+		this.hibernator = new TabHibernator(preferences, leftPane, rightPane);
+		this.hibernator.start();
 
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		setExtendedState(JFrame.MAXIMIZED_BOTH);
@@ -670,15 +884,17 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 		return null;
 	}
 
-	private void refreshButtons(List<File> selection) {
-		final int size = selection.size();
+	private void refreshButtons(DirectoryBrowser browser) {
+		// The counts are maintained incrementally by the browser (no need to
+		// build the selection)
+		final int size = browser.getSelectionCount();
 
 		// Enable / disable the actions so that key shortcuts and buttons have a
 		// consistent behavior
 
-		// Only enabled if only one entry selected
-		this.viewAction.setEnabled(size == 1 && selection.iterator().next().isFile());
-		this.editButton.setEnabled(size == 1 && selection.iterator().next().isFile());
+		// Only enabled if only one file selected
+		this.viewAction.setEnabled(size == 1 && browser.getSelectedFileCount() == 1);
+		this.editButton.setEnabled(size == 1 && browser.getSelectedFileCount() == 1);
 
 		// Only enabled if selection isn't empty
 		this.copyAction.setEnabled(size > 0);
@@ -699,10 +915,10 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 		// Event fired when the pane's user selection changes
 		if (e.getSource() == this.leftPane) {
 			// Update the buttons based on the current selection
-			refreshButtons(this.leftPane.getActiveBrowser().getSelection());
+			refreshButtons(this.leftPane.getActiveBrowser());
 		} else if (e.getSource() == this.rightPane) {
 			// Update the buttons based on the current selection
-			refreshButtons(this.rightPane.getActiveBrowser().getSelection());
+			refreshButtons(this.rightPane.getActiveBrowser());
 		}
 	}
 
@@ -716,6 +932,15 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 
 	@Override
 	public void windowClosing(WindowEvent e) {
+		if (logger.isInfoEnabled()) {
+			logger.info(String.format("Directory cache statistics: %s", directoryCache));
+			logger.info(String.format("Directory size index statistics: %s", sizeIndex));
+		}
+
+		this.directoryWatcher.close();
+		this.hibernator.stop();
+		this.ioExecutor.shutdown();
+
 		try {
 			if (logger.isDebugEnabled()) {
 				logger.debug("Saving preferences ...");
@@ -724,6 +949,9 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 			// Save the program state
 			final Preferences prefs = Preferences.userNodeForPackage(this.getClass());
 
+			// Only keep the snapshots of the tabs currently open
+			this.snapshots.clear();
+
 			this.leftPane.saveState(prefs.node("left.panel"));
 			this.rightPane.saveState(prefs.node("right.panel"));
 			this.preferences.saveState(prefs.node("user.preferences"));
@@ -736,6 +964,12 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 		} catch (BackingStoreException e1) {
 			// Not a big deal
 		}
+
+		try {
+			this.sizeIndex.save();
+		} catch (IOException e1) {
+			logger.warn(String.format("Unable to save the directory size index %s", sizeIndex.getStorage()), e1);
+		}
 	}
 
 	@Override
@@ -836,12 +1070,11 @@ public class DualCommander extends JFrame implements ChangeListener, WindowListe
 						e.getNewValue()));
 			}
 
-			// The 'show hidden' property changed, need to refresh the active
-			// directory browsers
-			// TODO Set a flag for the inactive directory browsers to refresh
-			// when they get the focus
-			this.leftPane.getActiveBrowser().refresh();
-			this.rightPane.getActiveBrowser().refresh();
+			// The 'show hidden' or 'show folder sizes' property changed, need
+			// to refresh the active directory browsers. The inactive ones will
+			// refresh when selected
+			this.leftPane.markDirty();
+			this.rightPane.markDirty();
 		}
 	}
 
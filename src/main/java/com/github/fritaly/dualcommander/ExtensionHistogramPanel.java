@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JComponent;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.Validate;
+
+/**
+ * Renders the number & total size of the files per extension as a histogram
+ * (one bar per extension, the largest first). Only the extensions fitting in
+ * the component are drawn.
+ *
+ * @author francois_ritaly
+ */
+public class ExtensionHistogramPanel extends JComponent {
+
+	private static final long serialVersionUID = 3925430260613851044L;
+
+	private static final Color BAR_COLOR = new Color(0x8FB4E3);
+
+	/**
+	 * The statistics to render sorted by decreasing size.
+	 */
+	private List<DiskUsageScan.ExtensionStats> stats = new ArrayList<>();
+
+	/**
+	 * The sizes & counts of the statistics (read once when set).
+	 */
+	private long[] sizes = new long[0], counts = new long[0];
+
+	public ExtensionHistogramPanel() {
+		setPreferredSize(new Dimension(320, 480));
+		setFont(Utils.getDefaultFont());
+	}
+
+	/**
+	 * Sets the statistics to render and repaints the component.
+	 *
+	 * @param stats
+	 *            the statistics sorted by decreasing size. Can't be null.
+	 */
+	public void setStats(List<DiskUsageScan.ExtensionStats> stats) {
+		Validate.notNull(stats, "The given list of statistics is null");
+
+		this.stats = stats;
+		this.sizes = new long[stats.size()];
+		this.counts = new long[stats.size()];
+
+		// The sizes may still grow, render a consistent snapshot
+		for (int i = 0; i < sizes.length; i++) {
+			sizes[i] = stats.get(i).getSize();
+			counts[i] = stats.get(i).getCount();
+		}
+
+		repaint();
+	}
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, getWidth(), getHeight());
+
+		if (stats.isEmpty()) {
+			return;
+		}
+
+		g.setFont(getFont());
+
+		final FontMetrics metrics = g.getFontMetrics();
+		final int rowHeight = metrics.getHeight() + 4;
+		final int labelWidth = metrics.stringWidth("MMMMMMMM");
+		final int barWidth = Math.max(0, getWidth() - labelWidth - 8);
+
+		// The bars are relative to the largest extension
+		final long max = Math.max(1, sizes[0]);
+
+		for (int i = 0; (i < sizes.length) && ((i + 1) * rowHeight <= getHeight()); i++) {
+			final int y = i * rowHeight;
+			final String extension = stats.get(i).getExtension();
+
+			g.setColor(Color.BLACK);
+			g.drawString(extension.isEmpty() ? "(none)" : "." + extension, 4, y + 2 + metrics.getAscent());
+
+			final int width = (int) (barWidth * ((double) sizes[i] / max));
+
+			g.setColor(BAR_COLOR);
+			g.fillRect(labelWidth + 4, y + 2, width, rowHeight - 4);
+
+			g.setColor(Color.BLACK);
+			g.drawString(String.format("%s (%d files)", FileUtils.byteCountToDisplaySize(sizes[i]), counts[i]),
+					labelWidth + 8, y + 2 + metrics.getAscent());
+		}
+	}
+}
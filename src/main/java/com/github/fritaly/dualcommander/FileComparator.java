@@ -21,7 +21,7 @@ import java.util.Comparator;
 
 import org.apache.commons.lang.Validate;
 
-public final class FileComparator implements Comparator<File> {
+public final class FileComparator implements Comparator<FileEntry> {
 
 	private final HasParentDirectory delegate;
 
@@ -32,15 +32,17 @@ public final class FileComparator implements Comparator<File> {
 	}
 
 	@Override
-	public int compare(File f1, File f2) {
+	public int compare(FileEntry f1, FileEntry f2) {
+		final File parentDir = this.delegate.getParentDirectory();
+
 		// Directories come first
 		if (f1.isDirectory()) {
-			if (f1.equals(this.delegate.getParentDirectory())) {
+			if (f1.getFile().equals(parentDir)) {
 				// The parent directory always comes first
 				return -1;
 			}
 			if (f2.isDirectory()) {
-				if (f2.equals(this.delegate.getParentDirectory())) {
+				if (f2.getFile().equals(parentDir)) {
 					// The parent directory always comes first
 					return +1;
 				}
@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Immutable snapshot of a file's attributes (name, type, size, last
+ * modification date and hidden flag) captured once when the directory is
+ * listed. Sorting and rendering a listing reads those values instead of
+ * querying the file system for every comparison or cell painted.
+ * <p>
+ * An entry is a lightweight view over a row of a {@link DirectoryListing}
+ * which holds the actual values.
+ *
+ * @author francois_ritaly
+ */
+public final class FileEntry {
+
+	private final DirectoryListing listing;
+
+	private final int index;
+
+	// The values below are computed lazily (at most once per entry) when
+	// first requested
+
+	private String name;
+
+	private File file;
+
+	private String foldedName;
+
+	private String extension;
+
+	private NaturalKey naturalKey;
+
+	FileEntry(DirectoryListing listing, int index) {
+		this.listing = listing;
+		this.index = index;
+	}
+
+	/**
+	 * Creates a new entry from the attributes of the given path. The attributes
+	 * are read with a single call to the file system. Symbolic links are
+	 * followed unless broken in which case the attributes of the link itself
+	 * are returned.
+	 *
+	 * @param path
+	 *            the path to introspect. Can't be null.
+	 * @return a new entry. Never returns null.
+	 * @throws IOException
+	 *             if the attributes can't be read.
+	 */
+	public static FileEntry of(Path path) throws IOException {
+		Validate.notNull(path, "The given path is null");
+
+		final Path parent = path.getParent();
+
+		final DirectoryListing listing = new DirectoryListing((parent != null) ? parent.toFile() : null, 1);
+
+		return listing.getEntry(listing.add(path));
+	}
+
+	public static FileEntry of(File file) throws IOException {
+		Validate.notNull(file, "The given file is null");
+
+		return of(file.toPath());
+	}
+
+	DirectoryListing getListing() {
+		return listing;
+	}
+
+	int getIndex() {
+		return index;
+	}
+
+	public File getFile() {
+		if (file == null) {
+			file = listing.getFile(index);
+		}
+
+		return file;
+	}
+
+	public String getName() {
+		if (name == null) {
+			name = listing.getName(index);
+		}
+
+		return name;
+	}
+
+	public boolean isDirectory() {
+		return listing.isDirectory(index);
+	}
+
+	public boolean isFile() {
+		return !listing.isDirectory(index);
+	}
+
+	/**
+	 * Returns the size of the file in bytes. The size of a directory is zero
+	 * unless its recursive size was computed (see {@link #isSizeComputed()}).
+	 *
+	 * @return a long.
+	 */
+	public long getSize() {
+		return listing.getSize(index);
+	}
+
+	public boolean isSizeComputed() {
+		return listing.isSizeComputed(index);
+	}
+
+	public long getLastModified() {
+		return listing.getLastModified(index);
+	}
+
+	public boolean isHidden() {
+		return listing.isHidden(index);
+	}
+
+	/**
+	 * Returns the name folded for a case-insensitive comparison (see
+	 * {@link FileSorter#fold(String)}).
+	 *
+	 * @return a string. Never returns null.
+	 */
+	public String getFoldedName() {
+		if (foldedName == null) {
+			foldedName = FileSorter.fold(getName());
+		}
+
+		return foldedName;
+	}
+
+	/**
+	 * Returns the (folded) extension of the file or an empty string if the
+	 * file has no extension or is a directory.
+	 *
+	 * @return a string. Never returns null.
+	 */
+	public String getExtension() {
+		if (extension == null) {
+			extension = getExtension(getName(), isDirectory());
+		}
+
+		return extension;
+	}
+
+	static String getExtension(String name, boolean directory) {
+		final int index = name.lastIndexOf('.');
+
+		// A leading '.' denotes a hidden file, not an extension
+		return (directory || (index <= 0)) ? "" : FileSorter.fold(name.substring(index + 1));
+	}
+
+	public NaturalKey getNaturalKey() {
+		if (naturalKey == null) {
+			naturalKey = new NaturalKey(getName());
+		}
+
+		return naturalKey;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (obj instanceof FileEntry) {
+			return getFile().equals(((FileEntry) obj).getFile());
+		}
+
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return getFile().hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return getFile().toString();
+	}
+}
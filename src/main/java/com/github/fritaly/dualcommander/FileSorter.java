@@ -0,0 +1,511 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Sort engine for the entries of a directory. Instead of sorting the entries
+ * with a comparator evaluating its criteria on every comparison, the sort keys
+ * are extracted once per entry into primitive (or pre-folded string) arrays
+ * and an array of indices is sorted against those keys. Large listings are
+ * sorted in parallel with a fork / join merge sort.
+ *
+ * @author francois_ritaly
+ */
+public final class FileSorter {
+
+	/**
+	 * Listings larger than this threshold are sorted in parallel.
+	 */
+	static final int PARALLEL_THRESHOLD = 50000;
+
+	/**
+	 * Below this size, a range is sorted sequentially by a fork / join task.
+	 */
+	private static final int SEQUENTIAL_THRESHOLD = 8192;
+
+	/**
+	 * Below this size, a range is sorted with an insertion sort.
+	 */
+	private static final int INSERTION_SORT_THRESHOLD = 32;
+
+	/**
+	 * Pool shared by all the parallel sorts.
+	 */
+	private static ForkJoinPool pool;
+
+	/**
+	 * Compares 2 entries given their index in the sorted listing. The keys are
+	 * extracted once per entry and updated when an entry is added or modified
+	 * so that the entries can be inserted without extracting the keys again.
+	 */
+	static interface IndexComparator {
+
+		public int compare(int index1, int index2);
+
+		/**
+		 * (Re)computes the key of the entry at the given index of the listing.
+		 * The keys grow as needed to store the keys of the added entries.
+		 */
+		public void update(DirectoryListing listing, int index);
+	}
+
+	private static final class LongKeys implements IndexComparator {
+
+		private final SortCriteria criteria;
+
+		private long[] keys;
+
+		LongKeys(SortCriteria criteria, int capacity) {
+			this.criteria = criteria;
+			this.keys = new long[capacity];
+		}
+
+		@Override
+		public int compare(int index1, int index2) {
+			final long key1 = keys[index1], key2 = keys[index2];
+
+			return (key1 < key2) ? -1 : ((key1 == key2) ? 0 : +1);
+		}
+
+		@Override
+		public void update(DirectoryListing listing, int index) {
+			if (index >= keys.length) {
+				this.keys = Arrays.copyOf(keys, Math.max(index + 1, 2 * keys.length));
+			}
+
+			switch (criteria) {
+			case TYPE:
+				// The folders come first
+				keys[index] = listing.isDirectory(index) ? 0 : 1;
+				break;
+			case SIZE:
+				keys[index] = listing.getSize(index);
+				break;
+			case LAST_UPDATE:
+				keys[index] = listing.getLastModified(index);
+				break;
+			default:
+				throw new UnsupportedOperationException("Unsupported sort criteria: " + criteria);
+			}
+		}
+	}
+
+	/**
+	 * Compares folded names. The first 4 characters of each name are packed
+	 * into a long so that most comparisons don't need to read the strings.
+	 */
+	private static final class NameKeys implements IndexComparator {
+
+		private final SortCriteria criteria;
+
+		private long[] prefixes;
+
+		private String[] keys;
+
+		NameKeys(SortCriteria criteria, int capacity) {
+			this.criteria = criteria;
+			this.prefixes = new long[capacity];
+			this.keys = new String[capacity];
+		}
+
+		@Override
+		public int compare(int index1, int index2) {
+			final long prefix1 = prefixes[index1], prefix2 = prefixes[index2];
+
+			if (prefix1 != prefix2) {
+				return (prefix1 < prefix2) ? -1 : +1;
+			}
+
+			return keys[index1].compareTo(keys[index2]);
+		}
+
+		@Override
+		public void update(DirectoryListing listing, int index) {
+			if (index >= keys.length) {
+				final int capacity = Math.max(index + 1, 2 * keys.length);
+
+				this.prefixes = Arrays.copyOf(prefixes, capacity);
+				this.keys = Arrays.copyOf(keys, capacity);
+			}
+
+			final String key;
+
+			switch (criteria) {
+			case NAME:
+				key = fold(listing.getName(index));
+				break;
+			case EXTENSION:
+				key = FileEntry.getExtension(listing.getName(index), listing.isDirectory(index));
+				break;
+			default:
+				throw new UnsupportedOperationException("Unsupported sort criteria: " + criteria);
+			}
+
+			long prefix = 0;
+
+			for (int j = 0; j < 4; j++) {
+				// Shorter names are padded with 0 which sorts first
+				prefix = (prefix << 16) | ((j < key.length()) ? key.charAt(j) : 0);
+			}
+
+			// Flip the sign bit to compare the unsigned values as signed
+			this.prefixes[index] = prefix ^ Long.MIN_VALUE;
+			this.keys[index] = key;
+		}
+	}
+
+	private static final class NaturalKeys implements IndexComparator {
+
+		private NaturalKey[] keys;
+
+		NaturalKeys(int capacity) {
+			this.keys = new NaturalKey[capacity];
+		}
+
+		@Override
+		public int compare(int index1, int index2) {
+			return keys[index1].compareTo(keys[index2]);
+		}
+
+		@Override
+		public void update(DirectoryListing listing, int index) {
+			if (index >= keys.length) {
+				this.keys = Arrays.copyOf(keys, Math.max(index + 1, 2 * keys.length));
+			}
+
+			keys[index] = new NaturalKey(listing.getName(index));
+		}
+	}
+
+	/**
+	 * Compares 2 entries against a sequence of keys, the next key being used to
+	 * break the ties of the previous one.
+	 */
+	private static final class CompositeKeys implements IndexComparator {
+
+		private final IndexComparator[] comparators;
+
+		CompositeKeys(IndexComparator[] comparators) {
+			this.comparators = comparators;
+		}
+
+		@Override
+		public int compare(int index1, int index2) {
+			for (IndexComparator comparator : comparators) {
+				final int result = comparator.compare(index1, index2);
+
+				if (result != 0) {
+					return result;
+				}
+			}
+
+			return 0;
+		}
+
+		@Override
+		public void update(DirectoryListing listing, int index) {
+			for (IndexComparator comparator : comparators) {
+				comparator.update(listing, index);
+			}
+		}
+	}
+
+	private static final class MergeSortTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -3191398398946596545L;
+
+		private final int[] indices, buffer;
+
+		private final int from, to;
+
+		private final IndexComparator comparator;
+
+		MergeSortTask(int[] indices, int[] buffer, int from, int to, IndexComparator comparator) {
+			this.indices = indices;
+			this.buffer = buffer;
+			this.from = from;
+			this.to = to;
+			this.comparator = comparator;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= SEQUENTIAL_THRESHOLD) {
+				mergeSort(indices, buffer, from, to, comparator);
+			} else {
+				final int middle = (from + to) >>> 1;
+
+				invokeAll(new MergeSortTask(indices, buffer, from, middle, comparator), new MergeSortTask(indices, buffer,
+						middle, to, comparator));
+
+				merge(indices, buffer, from, middle, to, comparator);
+			}
+		}
+	}
+
+	private FileSorter() {
+	}
+
+	private static synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool();
+		}
+
+		return pool;
+	}
+
+	/**
+	 * Returns the given name folded so that comparing 2 folded names with
+	 * {@link String#compareTo(String)} gives the same result as comparing the
+	 * original names with {@link String#compareToIgnoreCase(String)}.
+	 *
+	 * @param name
+	 *            the name to fold. Can't be null.
+	 * @return the folded name.
+	 */
+	static String fold(String name) {
+		final char[] chars = name.toCharArray();
+
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+		}
+
+		return new String(chars);
+	}
+
+	private static IndexComparator createComparator(SortCriteria criteria, int capacity) {
+		switch (criteria) {
+		case TYPE:
+		case SIZE:
+		case LAST_UPDATE:
+			return new LongKeys(criteria, capacity);
+		case NAME:
+		case EXTENSION:
+			return new NameKeys(criteria, capacity);
+		case NATURAL_NAME:
+			return new NaturalKeys(capacity);
+		default:
+			throw new UnsupportedOperationException("Unsupported sort criteria: " + criteria);
+		}
+	}
+
+	/**
+	 * Extracts the keys of the entries of the given listing for the given sort
+	 * order.
+	 *
+	 * @param listing
+	 *            the listing whose entries are to be compared. Can't be null.
+	 * @param sortOrder
+	 *            the sort order. Can't be null.
+	 * @return a comparator of the indices of the listing's entries.
+	 */
+	static IndexComparator createComparator(DirectoryListing listing, SortOrder sortOrder) {
+		Validate.notNull(listing, "The given listing is null");
+		Validate.notNull(sortOrder, "The given sort order is null");
+
+		final List<SortCriteria> criteria = sortOrder.getCriteria();
+		final int size = listing.size();
+
+		final IndexComparator comparator;
+
+		if (criteria.size() == 1) {
+			comparator = createComparator(criteria.get(0), size);
+		} else {
+			final IndexComparator[] comparators = new IndexComparator[criteria.size()];
+
+			for (int i = 0; i < comparators.length; i++) {
+				comparators[i] = createComparator(criteria.get(i), size);
+			}
+
+			comparator = new CompositeKeys(comparators);
+		}
+
+		for (int i = 0; i < size; i++) {
+			comparator.update(listing, i);
+		}
+
+		return comparator;
+	}
+
+	/**
+	 * Sorts the entries of the given listing according to the given order and
+	 * returns the resulting order as an array of indices into the listing. The
+	 * sort is stable.
+	 *
+	 * @param listing
+	 *            the listing whose entries are to be sorted. Can't be null.
+	 * @param sortOrder
+	 *            the sort order. Can't be null.
+	 * @param ascending
+	 *            whether to sort in ascending order.
+	 * @return an array of indices such as the i-th sorted entry is
+	 *         <code>listing.getEntry(result[i])</code>.
+	 */
+	public static int[] sort(DirectoryListing listing, SortOrder sortOrder, boolean ascending) {
+		final IndexComparator comparator = createComparator(listing, sortOrder);
+
+		final int[] indices = new int[listing.size()];
+
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = i;
+		}
+
+		return sort(indices, comparator, ascending);
+	}
+
+	/**
+	 * Sorts in place the given indices against the keys of the given
+	 * comparator. Only the given indices are sorted, the other entries of the
+	 * listing (for instance the removed ones) are ignored. The sort is stable.
+	 *
+	 * @param indices
+	 *            the indices to sort. Can't be null.
+	 * @param comparator
+	 *            the comparator returned by
+	 *            {@link #createComparator(DirectoryListing, SortOrder)}. Can't
+	 *            be null.
+	 * @param ascending
+	 *            whether to sort in ascending order.
+	 * @return the given array.
+	 */
+	static int[] sort(int[] indices, IndexComparator comparator, boolean ascending) {
+		Validate.notNull(indices, "The given indices are null");
+		Validate.notNull(comparator, "The given comparator is null");
+
+		final int size = indices.length;
+		final int[] buffer = new int[size];
+
+		if (size >= PARALLEL_THRESHOLD) {
+			getPool().invoke(new MergeSortTask(indices, buffer, 0, size, comparator));
+		} else {
+			mergeSort(indices, buffer, 0, size, comparator);
+		}
+
+		if (!ascending) {
+			reverse(indices, 0, size);
+		}
+
+		return indices;
+	}
+
+	/**
+	 * Returns the position where the entry at the given index must be inserted
+	 * into the given indices (sorted against the keys of the given
+	 * comparator), after the entries sorting equal.
+	 *
+	 * @param indices
+	 *            the sorted indices. Can't be null.
+	 * @param index
+	 *            the index of the entry to insert (whose key was computed).
+	 * @param comparator
+	 *            the comparator the indices were sorted with. Can't be null.
+	 * @param ascending
+	 *            whether the indices are sorted in ascending order.
+	 * @return the insertion position.
+	 */
+	static int search(int[] indices, int index, IndexComparator comparator, boolean ascending) {
+		int low = 0, high = indices.length;
+
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+
+			final int result = comparator.compare(indices[mid], index);
+
+			if ((ascending ? result : -result) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Reverses in place the given range of the array.
+	 *
+	 * @param array
+	 *            the array to reverse.
+	 * @param from
+	 *            the index of the first element (inclusive).
+	 * @param to
+	 *            the index of the last element (exclusive).
+	 */
+	static void reverse(int[] array, int from, int to) {
+		for (int i = from, j = to - 1; i < j; i++, j--) {
+			final int tmp = array[i];
+
+			array[i] = array[j];
+			array[j] = tmp;
+		}
+	}
+
+	private static void mergeSort(int[] indices, int[] buffer, int from, int to, IndexComparator comparator) {
+		if (to - from <= INSERTION_SORT_THRESHOLD) {
+			// Insertion sort (stable)
+			for (int i = from + 1; i < to; i++) {
+				final int index = indices[i];
+
+				int j = i - 1;
+
+				while ((j >= from) && (comparator.compare(indices[j], index) > 0)) {
+					indices[j + 1] = indices[j];
+					j--;
+				}
+
+				indices[j + 1] = index;
+			}
+
+			return;
+		}
+
+		final int middle = (from + to) >>> 1;
+
+		mergeSort(indices, buffer, from, middle, comparator);
+		mergeSort(indices, buffer, middle, to, comparator);
+		merge(indices, buffer, from, middle, to, comparator);
+	}
+
+	private static void merge(int[] indices, int[] buffer, int from, int middle, int to, IndexComparator comparator) {
+		if (comparator.compare(indices[middle - 1], indices[middle]) <= 0) {
+			// The 2 halves are already in order
+			return;
+		}
+
+		System.arraycopy(indices, from, buffer, from, to - from);
+
+		int i = from, j = middle, k = from;
+
+		while ((i < middle) && (j < to)) {
+			// Take from the left half on ties to keep the sort stable
+			indices[k++] = (comparator.compare(buffer[j], buffer[i]) < 0) ? buffer[j++] : buffer[i++];
+		}
+		while (i < middle) {
+			indices[k++] = buffer[i++];
+		}
+		while (j < to) {
+			indices[k++] = buffer[j++];
+		}
+	}
+}
@@ -17,8 +17,10 @@
 package com.github.fritaly.dualcommander;
 
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.BitSet;
+import java.util.Deque;
 import java.util.List;
 
 import javax.swing.event.EventListenerList;
@@ -36,6 +38,26 @@ import org.apache.commons.lang.Validate;
  */
 public class FileTableModel implements TableModel {
 
+	/**
+	 * The maximum number of views retained for the last filters typed.
+	 */
+	private static final int MAX_FILTER_STATES = 8;
+
+	/**
+	 * A filter & the indices of the entries matching it.
+	 */
+	private static final class FilterState {
+
+		private final String filter;
+
+		private final int[] view;
+
+		FilterState(String filter, int[] view) {
+			this.filter = filter;
+			this.view = view;
+		}
+	}
+
 	public static final String COLUMN_TYPE = "Type";
 
 	public static final String COLUMN_NAME = "Name";
@@ -45,9 +67,72 @@ public class FileTableModel implements TableModel {
 	public static final String COLUMN_LAST_UPDATE = "Last Update";
 
 	/**
-	 * The list containing the files being browsed.
+	 * The entry for the parent directory, always displayed first (can be
+	 * null).
+	 */
+	private FileEntry parentEntry;
+
+	/**
+	 * The listing containing the entries being browsed.
+	 */
+	private DirectoryListing listing = new DirectoryListing(null, 0);
+
+	/**
+	 * The listing set (possibly shared) whose private copy may be displayed.
+	 * The copy keeps the indices of its entries.
+	 */
+	private DirectoryListing origin = listing;
+
+	/**
+	 * The indices of the listing's entries in display order.
+	 */
+	private int[] order = new int[0];
+
+	/**
+	 * The indices of the entries matching the filter in display order. Same
+	 * array as {@link #order} when there's no filter.
+	 */
+	private int[] view = order;
+
+	/**
+	 * The indices of the listing's entries removed from the display order.
+	 * The entries stay in the listing (to keep the indices) but are excluded
+	 * when sorting.
+	 */
+	private final BitSet removed = new BitSet();
+
+	/**
+	 * The sort keys of the listing's entries (computed on demand), used for
+	 * inserting entries at their sorted position.
+	 */
+	private FileSorter.IndexComparator keys;
+
+	/**
+	 * The (lower-cased) filter typed by the user. Empty if none.
+	 */
+	private String filter = "";
+
+	/**
+	 * Matches the listing's entries against the filter (created on demand).
+	 */
+	private QuickFilter quickFilter;
+
+	/**
+	 * The views computed for the last filters typed (the most recent first),
+	 * reused when characters are removed from the filter.
+	 */
+	private final Deque<FilterState> filterStates = new ArrayDeque<>();
+
+	/**
+	 * Cache of the entry views and their formatted values.
+	 */
+	private RenderCache renderCache = new RenderCache(listing);
+
+	/**
+	 * Whether the listing is a private copy (which can be modified) or a
+	 * shared one.
 	 */
-	private final List<File> list = new ArrayList<>();
+	private boolean forked;
 
 	/**
 	 * Comparator used for sorting the directories & files.
@@ -66,40 +151,411 @@ public class FileTableModel implements TableModel {
 	}
 
 	public void clear() {
-		list.clear();
+		this.parentEntry = null;
+		this.listing = new DirectoryListing(null, 0);
+		this.origin = listing;
+		this.order = new int[0];
+		this.view = order;
+		this.filter = "";
+		this.filterStates.clear();
+		this.quickFilter = null;
+		this.renderCache = new RenderCache(listing);
+		this.removed.clear();
+		this.keys = null;
+		this.forked = false;
+	}
+
+	/**
+	 * Sets the entry for the parent directory (rendered as "..").
+	 *
+	 * @param entry
+	 *            the parent directory entry. Can be null.
+	 */
+	public void setParentEntry(FileEntry entry) {
+		this.parentEntry = entry;
+	}
+
+	/**
+	 * Replaces all the entries (except the parent directory entry) by the ones
+	 * of the given listing.
+	 *
+	 * @param listing
+	 *            the listing to display. Can't be null.
+	 * @param order
+	 *            the indices of the listing's entries in display order (as
+	 *            returned by {@link FileSorter}). Can't be null.
+	 */
+	public void setListing(DirectoryListing listing, int[] order) {
+		Validate.notNull(listing, "The given listing is null");
+		Validate.notNull(order, "The given order is null");
+		Validate.isTrue(listing.size() == order.length, "The given order doesn't match the listing");
+
+		if (this.listing != listing) {
+			this.renderCache = new RenderCache(listing);
+			this.quickFilter = null;
+			this.keys = null;
+		}
+
+		this.removed.clear();
+
+		this.listing = listing;
+		this.origin = listing;
+		this.order = order;
+		this.forked = false;
+
+		applyFilter();
+	}
+
+	/**
+	 * Returns the filter typed by the user (lower-cased).
+	 *
+	 * @return the filter or an empty string if none.
+	 */
+	public String getFilter() {
+		return filter;
+	}
+
+	/**
+	 * Only displays the entries whose name contains the given text (ignoring
+	 * the case) and notifies the listeners. When the new filter contains a
+	 * previous one (characters typed), only the entries matching the previous
+	 * one are filtered. The views of the last filters are retained so that
+	 * removing characters is immediate.
+	 *
+	 * @param text
+	 *            the text to search for. Can't be null. An empty text displays
+	 *            all the entries.
+	 */
+	public void setFilter(String text) {
+		Validate.notNull(text, "The given text is null");
+
+		final String normalized = new String(QuickFilter.normalize(text));
+
+		if (normalized.equals(filter)) {
+			return;
+		}
+
+		this.filter = normalized;
+
+		// Search for the last view which can be narrowed to the new filter
+		while (!filterStates.isEmpty() && !filter.contains(filterStates.peek().filter)) {
+			filterStates.pop();
+		}
+
+		if (filter.isEmpty()) {
+			this.view = order;
+		} else if (filterStates.isEmpty()) {
+			this.view = getQuickFilter().filter(order, filter.toCharArray());
+		} else if (filterStates.peek().filter.equals(filter)) {
+			// Characters were removed, reuse the view computed
+			this.view = filterStates.peek().view;
+		} else {
+			// Narrow the view incrementally
+			this.view = getQuickFilter().filter(filterStates.peek().view, filter.toCharArray());
+		}
+
+		if (!filter.isEmpty() && (filterStates.isEmpty() || !filterStates.peek().filter.equals(filter))) {
+			filterStates.push(new FilterState(filter, view));
+
+			if (filterStates.size() > MAX_FILTER_STATES) {
+				filterStates.removeLast();
+			}
+		}
+
+		fireTableDataChanged();
+	}
+
+	/**
+	 * Discards the views retained for the previous filters (obsolete since
+	 * the entries changed) except the current one.
+	 */
+	private void resetFilterStates() {
+		filterStates.clear();
+
+		if (!filter.isEmpty()) {
+			filterStates.push(new FilterState(filter, view));
+		}
+	}
+
+	/**
+	 * Returns the number of entries matching the filter (except the parent
+	 * directory entry).
+	 */
+	public int getFilteredCount() {
+		return view.length;
+	}
+
+	private QuickFilter getQuickFilter() {
+		if (quickFilter == null) {
+			this.quickFilter = new QuickFilter(listing);
+		}
+
+		return quickFilter;
+	}
+
+	/**
+	 * Computes the view from the display order.
+	 */
+	private void applyFilter() {
+		this.view = filter.isEmpty() ? order : getQuickFilter().filter(order, filter.toCharArray());
+
+		resetFilterStates();
+	}
+
+	private static int[] remove(int[] array, int position) {
+		final int[] result = new int[array.length - 1];
+
+		System.arraycopy(array, 0, result, 0, position);
+		System.arraycopy(array, position + 1, result, position, result.length - position);
+
+		return result;
+	}
+
+	private static int[] insert(int[] array, int position, int value) {
+		final int[] result = new int[array.length + 1];
+
+		System.arraycopy(array, 0, result, 0, position);
+		System.arraycopy(array, position, result, position + 1, array.length - position);
+
+		result[position] = value;
+
+		return result;
+	}
+
+	/**
+	 * Returns the sort keys of the listing's entries, extracted on the first
+	 * call.
+	 */
+	private FileSorter.IndexComparator getKeys() {
+		if (keys == null) {
+			this.keys = FileSorter.createComparator(listing, comparator.getSortOrder());
+		}
+
+		return keys;
+	}
+
+	public DirectoryListing getListing() {
+		return listing;
+	}
+
+	/**
+	 * Returns a listing containing exactly the displayed entries (except the
+	 * parent directory entry). The listing is returned as is unless it was
+	 * modified, in which case a compact copy (in display order) is returned.
+	 */
+	public DirectoryListing getDisplayedListing() {
+		if (!forked && (order.length == listing.size())) {
+			return listing;
+		}
+
+		return listing.subset(order);
+	}
+
+	/**
+	 * Replaces the (shared) listing by a private copy before modifying it.
+	 */
+	private void fork() {
+		if (!forked) {
+			this.listing = listing.copy();
+			this.renderCache = new RenderCache(listing);
+			this.quickFilter = null;
+			this.forked = true;
+		}
+	}
+
+	/**
+	 * Removes the given row and notifies the listeners.
+	 *
+	 * @param rowIndex
+	 *            the index of the row to remove (can't be the parent directory
+	 *            entry).
+	 */
+	public void removeRow(int rowIndex) {
+		final int position = rowIndex - getSortOffset();
+
+		Validate.isTrue((position >= 0) && (position < view.length), String.format("Invalid row index: %d", rowIndex));
+
+		if (view == order) {
+			removed.set(order[position]);
+
+			this.order = remove(order, position);
+			this.view = order;
+		} else {
+			// Also remove the entry from the display order
+			final int index = view[position];
+
+			removed.set(index);
+
+			for (int i = 0; i < order.length; i++) {
+				if (order[i] == index) {
+					this.order = remove(order, i);
+					break;
+				}
+			}
+
+			this.view = remove(view, position);
+
+			resetFilterStates();
+		}
+
+		fireTableChanged(new TableModelEvent(this, rowIndex, rowIndex, TableModelEvent.ALL_COLUMNS,
+				TableModelEvent.DELETE));
+	}
+
+	/**
+	 * Inserts a copy of the given entry at its sorted position and notifies
+	 * the listeners.
+	 *
+	 * @param entry
+	 *            the entry to insert. Can't be null.
+	 * @return the index of the inserted row or -1 if the entry doesn't match
+	 *         the filter (in which case it's not displayed).
+	 */
+	public int insertEntry(FileEntry entry) {
+		Validate.notNull(entry, "The given entry is null");
+
+		fork();
+
+		final DirectoryListing source = entry.getListing();
+		final int i = entry.getIndex();
+
+		final int index = listing.add(source.getName(i), source.isDirectory(i), source.getSize(i),
+				source.getLastModified(i), source.isHidden(i));
+
+		// Extract the keys of the entry once
+		final FileSorter.IndexComparator keys = getKeys();
+
+		keys.update(listing, index);
+
+		// Binary search of the position after the entries sorting equal
+		final boolean ascending = comparator.isAscending();
+		final boolean filtered = (view != order);
+		final int low = FileSorter.search(order, index, keys, ascending);
+
+		this.order = insert(order, low, index);
+
+		final int position;
+
+		if (!filtered) {
+			this.view = order;
+
+			position = low;
+		} else if (getQuickFilter().accept(index, filter.toCharArray())) {
+			position = FileSorter.search(view, index, keys, ascending);
+
+			this.view = insert(view, position, index);
+
+			resetFilterStates();
+		} else {
+			// The entry is hidden by the filter
+			return -1;
+		}
+
+		final int rowIndex = getSortOffset() + position;
+
+		fireTableChanged(new TableModelEvent(this, rowIndex, rowIndex, TableModelEvent.ALL_COLUMNS,
+				TableModelEvent.INSERT));
+
+		return rowIndex;
 	}
 
-	public void add(File file) {
-		Validate.notNull(file, "The given file is null");
+	/**
+	 * Sets the recursive size (computed in the background) of the given
+	 * directory. The listing is copied first if shared. The rows aren't sorted
+	 * again and the listeners aren't notified (see {@link #fireSizesChanged()}).
+	 *
+	 * @param entry
+	 *            the directory entry (possibly from the listing set before the
+	 *            current one). Can't be null.
+	 * @param size
+	 *            the size of the directory.
+	 * @return whether the directory is still part of the listing.
+	 */
+	public boolean setDirectorySize(FileEntry entry, long size) {
+		Validate.notNull(entry, "The given entry is null");
+
+		final int index;
+
+		if ((entry.getListing() == listing) || (entry.getListing() == origin)) {
+			index = entry.getIndex();
+		} else {
+			// The entries are appended so the last match is the current one
+			index = listing.lastIndexOf(entry.getFile());
+		}
+
+		if ((index < 0) || removed.get(index) || !listing.isDirectory(index)) {
+			return false;
+		}
+
+		fork();
+
+		listing.setDirectorySize(index, size);
+		renderCache.invalidateSize(index);
+
+		if (keys != null) {
+			keys.update(listing, index);
+		}
+
+		return true;
+	}
 
-		list.add(file);
+	/**
+	 * Notifies the listeners that the sizes displayed changed. The rows are
+	 * reported as updated so that the selection is preserved.
+	 */
+	public void fireSizesChanged() {
+		if (getRowCount() > 0) {
+			fireTableChanged(new TableModelEvent(this, 0, getRowCount() - 1, 2));
+		}
 	}
 
-	public List<File> getAll() {
-		return Collections.unmodifiableList(list);
+	/**
+	 * Returns the number of leading rows excluded from the sort, that is 1 if
+	 * there's a parent directory entry (always displayed first) or 0.
+	 */
+	private int getSortOffset() {
+		return (parentEntry != null) ? 1 : 0;
 	}
 
 	public void sort() {
-		Collections.sort(list, comparator);
+		// Sort the indices of the displayed entries (the removed ones are
+		// excluded) against pre-computed keys
+		this.keys = FileSorter.createComparator(listing, comparator.getSortOrder());
+		this.order = FileSorter.sort(order.clone(), keys, comparator.isAscending());
+
+		applyFilter();
 	}
 
 	public SortCriteria getSortCriteria() {
 		return comparator.getCriteria();
 	}
 
+	public SortOrder getSortOrder() {
+		return comparator.getSortOrder();
+	}
+
 	public void setSortCriteria(SortCriteria criteria) {
 		Validate.notNull(criteria, "The given criteria is null");
 
 		if (criteria.equals(comparator.getCriteria())) {
-			// Change the sort order
+			// Change the sort order. No need to sort again, reversing the
+			// entries is enough
 			comparator.setAscending(!comparator.isAscending());
+
+			FileSorter.reverse(order, 0, order.length);
+
+			if (view != order) {
+				FileSorter.reverse(view, 0, view.length);
+
+				resetFilterStates();
+			}
 		} else {
 			// Change the sort criteria
 			comparator.setCriteria(criteria);
-		}
 
-		// Sort the entries
-		sort();
+			// Sort the entries
+			sort();
+		}
 
 		// Notify the listeners
 		fireTableDataChanged();
@@ -165,7 +621,7 @@ public class FileTableModel implements TableModel {
 		case 1:
 		case 2:
 		case 3:
-			return File.class;
+			return FileEntry.class;
 		default:
 			throw new IllegalArgumentException(String.format("Invalid column index: %d", columnIndex));
 		}
@@ -194,33 +650,92 @@ public class FileTableModel implements TableModel {
 
 	@Override
 	public int getRowCount() {
-		return list.size();
+		return getSortOffset() + view.length;
 	}
 
 	@Override
 	public Object getValueAt(int rowIndex, int columnIndex) {
-		final File file = list.get(rowIndex);
+		final FileEntry entry = getEntryAt(rowIndex);
 
 		switch (columnIndex) {
 		case 0:
 		case 1:
 		case 2:
 		case 3:
-			return file;
+			return entry;
 		default:
 			throw new IllegalArgumentException(String.format("Invalid column index: %d", columnIndex));
 		}
 	}
 
+	public FileEntry getEntryAt(int rowIndex) {
+		if ((rowIndex == 0) && (parentEntry != null)) {
+			return parentEntry;
+		}
+
+		return renderCache.getEntry(view[rowIndex - getSortOffset()]);
+	}
+
 	public File getFileAt(int rowIndex) {
-		return list.get(rowIndex);
+		return getEntryAt(rowIndex).getFile();
+	}
+
+	/**
+	 * Returns the index in the listing of the entry displayed at the given row
+	 * or -1 for the parent directory entry.
+	 */
+	public int getListingIndex(int rowIndex) {
+		if ((rowIndex == 0) && (parentEntry != null)) {
+			return -1;
+		}
+
+		return view[rowIndex - getSortOffset()];
+	}
+
+	/**
+	 * Returns the text to display in the given cell. The texts are computed
+	 * once per listing and cached.
+	 *
+	 * @param rowIndex
+	 *            the index of the row.
+	 * @param columnIndex
+	 *            the index of the column.
+	 * @return the text to display. Never returns null.
+	 */
+	public String getText(int rowIndex, int columnIndex) {
+		if ((rowIndex == 0) && (parentEntry != null)) {
+			// Render the parent directory entry as ".." without date
+			switch (columnIndex) {
+			case 1:
+				return "[..]";
+			case 2:
+				return "[DIR]";
+			default:
+				return "";
+			}
+		}
+
+		final int index = view[rowIndex - getSortOffset()];
+
+		switch (columnIndex) {
+		case 0:
+			return "";
+		case 1:
+			return renderCache.getName(index);
+		case 2:
+			return renderCache.getSize(index);
+		case 3:
+			return renderCache.getLastUpdate(index);
+		default:
+			throw new IllegalArgumentException(String.format("Invalid column index: %d", columnIndex));
+		}
 	}
 
 	public List<File> getFilesAt(int[] rowIndices) {
 		final List<File> selection = new ArrayList<>(rowIndices.length);
 
 		for (int rowIndex : rowIndices) {
-			selection.add(list.get(rowIndex));
+			selection.add(getFileAt(rowIndex));
 		}
 
 		return selection;
@@ -236,21 +751,39 @@ public class FileTableModel implements TableModel {
 		// We don't support that operation
 		throw new UnsupportedOperationException();
 
-//		list.set(rowIndex, (File) aValue);
+//		list.set(rowIndex, (FileEntry) aValue);
 //
 //		// Fire an event to notify the change
 //		fireTableChanged(new TableModelEvent(this, rowIndex));
 	}
 
 	public boolean contains(File element) {
-		return list.contains(element);
+		return indexOf(element) >= 0;
 	}
 
 	public int indexOf(File element) {
-		return list.indexOf(element);
+		if ((parentEntry != null) && parentEntry.getFile().equals(element)) {
+			return 0;
+		}
+
+		if ((element == null) || (listing.getDirectory() == null)
+				|| !listing.getDirectory().equals(element.getParentFile())) {
+			return -1;
+		}
+
+		// The listing may contain removed entries, search the displayed ones
+		final String name = element.getName();
+
+		for (int i = 0; i < view.length; i++) {
+			if (listing.isName(view[i], name)) {
+				return getSortOffset() + i;
+			}
+		}
+
+		return -1;
 	}
 
 	public int size() {
-		return list.size();
+		return getRowCount();
 	}
 }
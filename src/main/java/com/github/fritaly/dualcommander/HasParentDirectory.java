@@ -20,6 +20,13 @@ import java.io.File;
 
 public interface HasParentDirectory {
 
+	/**
+	 * Returns the parent directory. This method is called for every comparison
+	 * when sorting and every time a cell is painted, so implementations must
+	 * return a cached value rather than query the file system.
+	 *
+	 * @return the parent directory or null if there's none.
+	 */
 	public File getParentDirectory();
 
 }
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Executes the file system calls which can block indefinitely (stalled NFS or
+ * SSHFS mount) on a bounded pool of daemon threads so that the UI doesn't
+ * freeze: the caller watches the tasks and gives up once a deadline expires
+ * (see {@link #DEFAULT_TIMEOUT}). A thread blocked by a stalled mount can't be
+ * reclaimed, hence the bound: once all the threads are busy, the tasks are
+ * rejected.
+ *
+ * @author francois_ritaly
+ */
+public final class IoExecutor {
+
+	/**
+	 * The default deadline (in ms) of a file system call.
+	 */
+	public static final long DEFAULT_TIMEOUT = 2000;
+
+	private static final int DEFAULT_MAX_THREADS = 8;
+
+	private static final int MAX_PENDING_TASKS = 64;
+
+	private final ThreadPoolExecutor executor;
+
+	public IoExecutor() {
+		this(DEFAULT_MAX_THREADS);
+	}
+
+	public IoExecutor(int maxThreads) {
+		Validate.isTrue(maxThreads > 0, String.format("Invalid max threads: %d", maxThreads));
+
+		final AtomicInteger count = new AtomicInteger();
+
+		this.executor = new ThreadPoolExecutor(maxThreads, maxThreads, 30, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(MAX_PENDING_TASKS), new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable runnable) {
+						final Thread thread = new Thread(runnable, "IoExecutor-" + count.incrementAndGet());
+						thread.setDaemon(true);
+
+						return thread;
+					}
+				});
+
+		// Release the idle threads
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Executes the given task (typically a background worker performing a
+	 * series of file system calls) on one of the I/O threads.
+	 *
+	 * @param task
+	 *            the task to execute. Can't be null.
+	 * @throws RejectedExecutionException
+	 *             if all the I/O threads are busy.
+	 */
+	public void execute(Runnable task) {
+		Validate.notNull(task, "The given task is null");
+
+		executor.execute(task);
+	}
+
+	/**
+	 * Returns the number of threads currently executing a task (possibly
+	 * blocked by a stalled mount).
+	 *
+	 * @return a positive integer.
+	 */
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	/**
+	 * Interrupts the tasks in progress and stops the threads.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.lang.Validate;
+import org.apache.log4j.Logger;
+
+/**
+ * Persists the listings of the directories displayed when the application
+ * exits so that they can be displayed immediately at the next start while the
+ * directories are listed again in the background ("stale while revalidate").
+ * <p>
+ * Each listing is stored in its own compressed file named after a hash of the
+ * directory's path. A snapshot is only an hint: it's silently ignored if it
+ * can't be read.
+ *
+ * @author francois_ritaly
+ */
+public final class ListingSnapshots {
+
+	/**
+	 * Magic number identifying a snapshot file ("DCLS").
+	 */
+	private static final int MAGIC = 0x44434C53;
+
+	private static final int VERSION = 2;
+
+	private static final String EXTENSION = ".snapshot";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final int DIRECTORY_FLAG = 1;
+
+	private static final int HIDDEN_FLAG = 2;
+
+	/**
+	 * Flag set when the size of a directory is its recursive size.
+	 */
+	private static final int COMPUTED_SIZE_FLAG = 4;
+
+	private final Logger logger = Logger.getLogger(this.getClass());
+
+	/**
+	 * The directory storing the snapshot files.
+	 */
+	private final File storage;
+
+	public ListingSnapshots(File storage) {
+		Validate.notNull(storage, "The given storage directory is null");
+
+		this.storage = storage;
+	}
+
+	public File getStorage() {
+		return storage;
+	}
+
+	private File getSnapshotFile(File directory, boolean showHidden) {
+		try {
+			final byte[] digest = MessageDigest.getInstance("SHA-1").digest(
+					directory.getAbsolutePath().getBytes(UTF_8));
+
+			final StringBuilder builder = new StringBuilder(digest.length * 2 + 16);
+
+			for (byte b : digest) {
+				builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+
+			return new File(storage, builder.append(showHidden ? "-hidden" : "").append(EXTENSION).toString());
+		} catch (NoSuchAlgorithmException e) {
+			// Not supposed to happen (SHA-1 is always available)
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Saves the given listing.
+	 *
+	 * @param listing
+	 *            the listing to save (whose directory must be canonical).
+	 *            Can't be null.
+	 * @param showHidden
+	 *            whether the listing includes the hidden entries.
+	 * @throws IOException
+	 *             if the snapshot can't be written.
+	 */
+	public void save(DirectoryListing listing, boolean showHidden) throws IOException {
+		Validate.notNull(listing, "The given listing is null");
+		Validate.notNull(listing.getDirectory(), "The given listing has no directory");
+
+		if (!storage.isDirectory() && !storage.mkdirs()) {
+			throw new IOException(String.format("Unable to create directory %s", storage.getAbsolutePath()));
+		}
+
+		final File file = getSnapshotFile(listing.getDirectory(), showHidden);
+
+		// Write to a temporary file then rename it to never leave a truncated
+		// snapshot behind
+		final File tempFile = new File(storage, file.getName() + ".tmp");
+
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+				new FileOutputStream(tempFile))))) {
+
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeUTF(listing.getDirectory().getAbsolutePath());
+			output.writeBoolean(showHidden);
+			output.writeInt(listing.size());
+
+			for (int i = 0; i < listing.size(); i++) {
+				output.writeUTF(listing.getName(i));
+				final boolean directory = listing.isDirectory(i);
+
+				output.writeByte((directory ? DIRECTORY_FLAG : 0) | (listing.isHidden(i) ? HIDDEN_FLAG : 0)
+						| ((directory && listing.isSizeComputed(i)) ? COMPUTED_SIZE_FLAG : 0));
+				output.writeLong(listing.getSize(i));
+				output.writeLong(listing.getLastModified(i));
+			}
+		}
+
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		if (logger.isDebugEnabled()) {
+			logger.debug(String.format("Saved snapshot of %s (%d entries, %d bytes)", listing.getDirectory(),
+					listing.size(), file.length()));
+		}
+	}
+
+	/**
+	 * Loads the snapshot of the given directory.
+	 *
+	 * @param directory
+	 *            the (canonical) directory whose snapshot is to be loaded.
+	 *            Can't be null.
+	 * @param showHidden
+	 *            whether the listing must include the hidden entries.
+	 * @return the listing or null if there's no (valid) snapshot.
+	 */
+	public DirectoryListing load(File directory, boolean showHidden) {
+		Validate.notNull(directory, "The given directory is null");
+
+		final File file = getSnapshotFile(directory, showHidden);
+
+		if (!file.isFile()) {
+			return null;
+		}
+
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(
+				new FileInputStream(file))))) {
+
+			if ((input.readInt() != MAGIC) || (input.readInt() != VERSION)
+					|| !directory.getAbsolutePath().equals(input.readUTF()) || (input.readBoolean() != showHidden)) {
+				// Obsolete format or hash collision
+				return null;
+			}
+
+			final int size = input.readInt();
+
+			final DirectoryListing listing = new DirectoryListing(directory, size);
+
+			for (int i = 0; i < size; i++) {
+				final String name = input.readUTF();
+				final int flags = input.readByte();
+
+				final boolean folder = (flags & DIRECTORY_FLAG) != 0;
+				final long entrySize = input.readLong();
+
+				final int index = listing.add(name, folder, entrySize, input.readLong(), (flags & HIDDEN_FLAG) != 0);
+
+				if (folder && ((flags & COMPUTED_SIZE_FLAG) != 0)) {
+					// Restore the recursive size computed
+					listing.setDirectorySize(index, entrySize);
+				}
+			}
+
+			return listing;
+		} catch (IOException e) {
+			logger.warn(String.format("Unable to read the snapshot of %s", directory.getAbsolutePath()), e);
+
+			return null;
+		}
+	}
+
+	/**
+	 * Deletes all the snapshots.
+	 */
+	public void clear() {
+		final File[] files = storage.listFiles();
+
+		if (files == null) {
+			return;
+		}
+
+		for (File file : files) {
+			if (file.getName().endsWith(EXTENSION) && !file.delete()) {
+				logger.warn(String.format("Unable to delete snapshot %s", file.getAbsolutePath()));
+			}
+		}
+	}
+}
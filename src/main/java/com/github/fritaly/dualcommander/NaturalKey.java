@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Sort key ordering names "naturally", that is comparing the sequences of
+ * digits by numeric value so that "file2" comes before "file10". The name is
+ * tokenized once when the key is created, comparing 2 keys doesn't allocate
+ * anything. The text tokens are compared case-insensitively.
+ *
+ * @author francois_ritaly
+ */
+public final class NaturalKey implements Comparable<NaturalKey> {
+
+	/**
+	 * Numbers with more significant digits than this may not fit into a long.
+	 * They're compared by number of significant digits then digit by digit.
+	 */
+	private static final int MAX_DIGITS = 18;
+
+	/**
+	 * The text tokens or null for the numeric tokens.
+	 */
+	private final String[] texts;
+
+	/**
+	 * The value of the numeric tokens (undefined for the text tokens and the
+	 * large numbers).
+	 */
+	private final long[] numbers;
+
+	/**
+	 * The significant (ASCII) digits of the numeric tokens too large to fit
+	 * into a long or null for the other tokens.
+	 */
+	private final String[] largeNumbers;
+
+	public NaturalKey(String name) {
+		Validate.notNull(name, "The given name is null");
+
+		final List<String> texts = new ArrayList<>();
+		final List<Long> numbers = new ArrayList<>();
+		final List<String> largeNumbers = new ArrayList<>();
+
+		int start = 0;
+
+		while (start < name.length()) {
+			final boolean digits = Character.isDigit(name.charAt(start));
+
+			int end = start + 1;
+
+			while ((end < name.length()) && (Character.isDigit(name.charAt(end)) == digits)) {
+				end++;
+			}
+
+			if (digits) {
+				// Skip the leading zeros (but the last digit)
+				int first = start;
+
+				while ((first < end - 1) && (Character.digit(name.charAt(first), 10) == 0)) {
+					first++;
+				}
+
+				texts.add(null);
+
+				if (end - first <= MAX_DIGITS) {
+					numbers.add(Long.parseLong(name.substring(first, end)));
+					largeNumbers.add(null);
+				} else {
+					numbers.add(0L);
+					largeNumbers.add(toAsciiDigits(name, first, end));
+				}
+			} else {
+				texts.add(FileSorter.fold(name.substring(start, end)));
+				numbers.add(0L);
+				largeNumbers.add(null);
+			}
+
+			start = end;
+		}
+
+		this.texts = texts.toArray(new String[texts.size()]);
+		this.numbers = new long[numbers.size()];
+
+		for (int i = 0; i < this.numbers.length; i++) {
+			this.numbers[i] = numbers.get(i);
+		}
+
+		this.largeNumbers = largeNumbers.toArray(new String[largeNumbers.size()]);
+	}
+
+	/**
+	 * Returns the given digits (possibly non-ASCII) as ASCII digits so that 2
+	 * large numbers with as many digits compare like their strings.
+	 */
+	private static String toAsciiDigits(String name, int start, int end) {
+		final StringBuilder builder = new StringBuilder(end - start);
+
+		for (int i = start; i < end; i++) {
+			builder.append((char) ('0' + Character.digit(name.charAt(i), 10)));
+		}
+
+		return builder.toString();
+	}
+
+	private int compareNumbers(int index, NaturalKey other) {
+		final String large1 = this.largeNumbers[index], large2 = other.largeNumbers[index];
+
+		if ((large1 == null) && (large2 == null)) {
+			final long number1 = this.numbers[index], number2 = other.numbers[index];
+
+			return (number1 < number2) ? -1 : ((number1 == number2) ? 0 : +1);
+		}
+		if (large1 == null) {
+			// A large number is greater than any number fitting into a long
+			return -1;
+		}
+		if (large2 == null) {
+			return +1;
+		}
+		if (large1.length() != large2.length()) {
+			// The number with more significant digits is the greater
+			return (large1.length() < large2.length()) ? -1 : +1;
+		}
+
+		return large1.compareTo(large2);
+	}
+
+	@Override
+	public int compareTo(NaturalKey other) {
+		final int count = Math.min(this.texts.length, other.texts.length);
+
+		for (int i = 0; i < count; i++) {
+			final String text1 = this.texts[i], text2 = other.texts[i];
+
+			final int result;
+
+			if ((text1 == null) && (text2 == null)) {
+				// 2 numbers
+				result = compareNumbers(i, other);
+			} else if (text1 == null) {
+				result = compareNumberToText(text2);
+			} else if (text2 == null) {
+				result = -compareNumberToText(text1);
+			} else {
+				result = text1.compareTo(text2);
+			}
+
+			if (result != 0) {
+				return result;
+			}
+		}
+
+		// The shortest key comes first
+		return this.texts.length - other.texts.length;
+	}
+
+	private static int compareNumberToText(String text) {
+		// Digits and text compare like their characters
+		return ('0' < text.charAt(0)) ? -1 : +1;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return (obj instanceof NaturalKey) && (compareTo((NaturalKey) obj) == 0);
+	}
+
+	@Override
+	public int hashCode() {
+		int hashCode = 0;
+
+		for (int i = 0; i < texts.length; i++) {
+			if (texts[i] != null) {
+				hashCode = 31 * hashCode + texts[i].hashCode();
+			} else if (largeNumbers[i] != null) {
+				hashCode = 31 * hashCode + largeNumbers[i].hashCode();
+			} else {
+				hashCode = 31 * hashCode + (int) (numbers[i] ^ (numbers[i] >>> 32));
+			}
+		}
+
+		return hashCode;
+	}
+}
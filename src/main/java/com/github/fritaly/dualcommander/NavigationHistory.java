@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.awt.Point;
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Back & forward navigation history of a browser. Each location records the
+ * directory, the selection and the scroll position. The most recent locations
+ * also retain their listing so that going back to them displays it at once
+ * (while the directory is listed again to revalidate it). The number of
+ * locations and listings retained is bounded.
+ * <p>
+ * This class isn't thread-safe, it's meant to be used from the event dispatch
+ * thread.
+ *
+ * @author francois_ritaly
+ */
+public final class NavigationHistory {
+
+	/**
+	 * The default maximum number of locations per stack.
+	 */
+	public static final int DEFAULT_MAX_LOCATIONS = 32;
+
+	/**
+	 * The default maximum number of locations per stack retaining their
+	 * listing.
+	 */
+	public static final int DEFAULT_MAX_LISTINGS = 4;
+
+	public static final class Location {
+
+		private final File directory;
+
+		private final List<File> selection;
+
+		private final Point viewPosition;
+
+		/**
+		 * The listing of the directory (can be null once released).
+		 */
+		private DirectoryListing listing;
+
+		public Location(File directory, List<File> selection, Point viewPosition, DirectoryListing listing) {
+			Validate.notNull(directory, "The given directory is null");
+			Validate.notNull(selection, "The given selection is null");
+			Validate.notNull(viewPosition, "The given view position is null");
+
+			this.directory = directory;
+			this.selection = Collections.unmodifiableList(selection);
+			this.viewPosition = new Point(viewPosition);
+			this.listing = listing;
+		}
+
+		public File getDirectory() {
+			return directory;
+		}
+
+		public List<File> getSelection() {
+			return selection;
+		}
+
+		public Point getViewPosition() {
+			return new Point(viewPosition);
+		}
+
+		/**
+		 * Returns the listing of the directory or null if it was released.
+		 */
+		public DirectoryListing getListing() {
+			return listing;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s[%s, listing=%b]", getClass().getSimpleName(), directory, listing != null);
+		}
+	}
+
+	private final int maxLocations;
+
+	private final int maxListings;
+
+	/**
+	 * The locations visited before the current one (the most recent first).
+	 */
+	private final Deque<Location> backStack = new ArrayDeque<>();
+
+	/**
+	 * The locations left by going back (the most recent first).
+	 */
+	private final Deque<Location> forwardStack = new ArrayDeque<>();
+
+	public NavigationHistory() {
+		this(DEFAULT_MAX_LOCATIONS, DEFAULT_MAX_LISTINGS);
+	}
+
+	public NavigationHistory(int maxLocations, int maxListings) {
+		Validate.isTrue(maxLocations > 0, String.format("Invalid max locations: %d", maxLocations));
+		Validate.isTrue(maxListings >= 0, String.format("Invalid max listings: %d", maxListings));
+
+		this.maxLocations = maxLocations;
+		this.maxListings = maxListings;
+	}
+
+	/**
+	 * Records the location being left to visit a new one. The forward history
+	 * is discarded.
+	 *
+	 * @param current
+	 *            the location being left. Can't be null.
+	 */
+	public void visit(Location current) {
+		Validate.notNull(current, "The given location is null");
+
+		push(backStack, current);
+
+		forwardStack.clear();
+	}
+
+	public boolean canGoBack() {
+		return !backStack.isEmpty();
+	}
+
+	public boolean canGoForward() {
+		return !forwardStack.isEmpty();
+	}
+
+	/**
+	 * Goes back to the previous location.
+	 *
+	 * @param current
+	 *            the location being left. Can't be null.
+	 * @return the previous location or null if there's none.
+	 */
+	public Location back(Location current) {
+		Validate.notNull(current, "The given location is null");
+
+		if (backStack.isEmpty()) {
+			return null;
+		}
+
+		push(forwardStack, current);
+
+		return backStack.pop();
+	}
+
+	/**
+	 * Goes forward to the location left by going back.
+	 *
+	 * @param current
+	 *            the location being left. Can't be null.
+	 * @return the next location or null if there's none.
+	 */
+	public Location forward(Location current) {
+		Validate.notNull(current, "The given location is null");
+
+		if (forwardStack.isEmpty()) {
+			return null;
+		}
+
+		push(backStack, current);
+
+		return forwardStack.pop();
+	}
+
+	private void push(Deque<Location> stack, Location location) {
+		stack.push(location);
+
+		while (stack.size() > maxLocations) {
+			stack.removeLast();
+		}
+
+		// Only the most recent locations retain their listing
+		final Iterator<Location> iterator = stack.iterator();
+
+		for (int i = 0; iterator.hasNext(); i++) {
+			final Location next = iterator.next();
+
+			if (i >= maxListings) {
+				next.listing = null;
+			}
+		}
+	}
+
+	/**
+	 * Releases the listings retained by the locations (e.g. to free memory).
+	 * The locations are kept.
+	 */
+	public void releaseListings() {
+		for (Location location : backStack) {
+			location.listing = null;
+		}
+		for (Location location : forwardStack) {
+			location.listing = null;
+		}
+	}
+
+	/**
+	 * Returns an estimation of the memory (in bytes) used by the listings
+	 * retained by the locations.
+	 *
+	 * @return a long.
+	 */
+	public long getMemoryUsage() {
+		long usage = 0;
+
+		for (Location location : backStack) {
+			usage += (location.listing != null) ? location.listing.getMemoryUsage() : 0;
+		}
+		for (Location location : forwardStack) {
+			usage += (location.listing != null) ? location.listing.getMemoryUsage() : 0;
+		}
+
+		return usage;
+	}
+
+	public void clear() {
+		backStack.clear();
+		forwardStack.clear();
+	}
+}
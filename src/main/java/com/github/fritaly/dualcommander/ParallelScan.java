@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.Validate;
+import org.apache.log4j.Logger;
+
+/**
+ * Counts the files & folders of a selection (and the total size of the files)
+ * by walking the directory trees in parallel (one fork/join task per
+ * directory). The counters can be read while the scan is in progress to
+ * report its progress. The attributes of each entry are read once (the sizes
+ * come from them), the symbolic links aren't followed and the entries are
+ * de-duplicated by file key like {@link TreeWalker} (a hard-linked file is
+ * counted once).
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author francois_ritaly
+ */
+public final class ParallelScan implements ScanProgress {
+
+	private final class DirectoryTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -5183468426004788150L;
+
+		private final Path directory;
+
+		DirectoryTask(Path directory) {
+			this.directory = directory;
+		}
+
+		@Override
+		protected void compute() {
+			final List<DirectoryTask> tasks = new ArrayList<>();
+
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+				for (Path path : stream) {
+					if (cancelled) {
+						return;
+					}
+
+					visit(path, tasks);
+				}
+			} catch (IOException | DirectoryIteratorException e) {
+				// The entries iterated so far are counted, go on with the
+				// other directories
+				errorCount.incrementAndGet();
+
+				logger.warn(String.format("Unable to scan directory %s", directory), e);
+			}
+
+			// Scan the sub-directories in parallel
+			invokeAll(tasks);
+		}
+	}
+
+	private final Logger logger = Logger.getLogger(this.getClass());
+
+	private final Collection<File> files;
+
+	private final AtomicInteger fileCount = new AtomicInteger();
+
+	private final AtomicInteger directoryCount = new AtomicInteger();
+
+	private final AtomicLong totalSize = new AtomicLong();
+
+	private final AtomicInteger errorCount = new AtomicInteger();
+
+	/**
+	 * The keys of the entries already visited.
+	 */
+	private final Set<Object> fileKeys = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+
+	private volatile boolean cancelled;
+
+	private final ForkJoinPool pool;
+
+	private ForkJoinTask<?> task;
+
+	public ParallelScan(Collection<File> files) {
+		Validate.notNull(files, "The given collection of files is null");
+
+		this.files = new ArrayList<>(files);
+		this.pool = new ForkJoinPool();
+	}
+
+	/**
+	 * Visits the given entry. Its sub-tree is scanned by a new task if it's a
+	 * directory.
+	 */
+	private void visit(Path path, List<DirectoryTask> tasks) {
+		final BasicFileAttributes attributes;
+
+		try {
+			attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		} catch (IOException e) {
+			// The entry was probably deleted in the mean time
+			if (logger.isDebugEnabled()) {
+				logger.debug(String.format("Unable to read the attributes of %s", path));
+			}
+
+			return;
+		}
+
+		final Object key = attributes.fileKey();
+
+		if ((key != null) && !fileKeys.add(key)) {
+			// Already visited through another link
+			return;
+		}
+
+		if (attributes.isDirectory()) {
+			directoryCount.incrementAndGet();
+
+			tasks.add(new DirectoryTask(path));
+		} else {
+			fileCount.incrementAndGet();
+			totalSize.addAndGet(attributes.size());
+		}
+	}
+
+	/**
+	 * Starts the scan in the background. Returns immediately.
+	 */
+	public synchronized void start() {
+		Validate.isTrue(task == null, "The scan has already been started");
+
+		this.task = pool.submit(new RecursiveAction() {
+
+			private static final long serialVersionUID = 2938456013467458316L;
+
+			@Override
+			protected void compute() {
+				try {
+					final List<DirectoryTask> tasks = new ArrayList<>();
+
+					for (File file : files) {
+						visit(file.toPath(), tasks);
+					}
+
+					invokeAll(tasks);
+				} catch (RuntimeException | Error e) {
+					if (!cancelled) {
+						logger.error("Error when scanning the selection", e);
+					}
+
+					throw e;
+				} finally {
+					// All the tasks completed, release the threads
+					pool.shutdown();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Cancels the scan in progress (if any). The counters stop growing.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+
+		pool.shutdownNow();
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Tells whether the scan completed normally (the counters are final).
+	 */
+	@Override
+	public synchronized boolean isDone() {
+		return (task != null) && task.isDone() && !task.isCompletedAbnormally() && !cancelled;
+	}
+
+	/**
+	 * Tells whether the scan was aborted by an unexpected error (the counters
+	 * won't grow anymore but are incomplete).
+	 */
+	@Override
+	public synchronized boolean isFailed() {
+		return (task != null) && task.isCompletedAbnormally() && !cancelled;
+	}
+
+	@Override
+	public int getFiles() {
+		return fileCount.get();
+	}
+
+	@Override
+	public int getDirectories() {
+		return directoryCount.get();
+	}
+
+	@Override
+	public long getTotalSize() {
+		return totalSize.get();
+	}
+
+	@Override
+	public int getErrorCount() {
+		return errorCount.get();
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Matches the names of a listing's entries against a pattern typed by the
+ * user (case-insensitive substring). The lower-cased names are computed once
+ * and packed into a single character arena (like the listing's names) so that
+ * filtering a million entries doesn't create any object. The keys are extended
+ * lazily when entries are appended to the listing.
+ *
+ * @author francois_ritaly
+ */
+public final class QuickFilter {
+
+	private final DirectoryListing listing;
+
+	/**
+	 * The arena storing the lower-cased names one after the other.
+	 */
+	private char[] keys;
+
+	/**
+	 * The offsets of the keys in the arena. The key of the i-th entry starts
+	 * at offsets[i] and ends at offsets[i + 1] (exclusive).
+	 */
+	private int[] offsets;
+
+	/**
+	 * The number of entries whose key has been computed.
+	 */
+	private int count;
+
+	public QuickFilter(DirectoryListing listing) {
+		Validate.notNull(listing, "The given listing is null");
+
+		this.listing = listing;
+		this.keys = new char[Math.max(listing.size(), 1) * 16];
+		this.offsets = new int[listing.size() + 1];
+	}
+
+	/**
+	 * Returns the given pattern lower-cased the same way as the keys (one
+	 * character at a time so that the lengths are preserved).
+	 *
+	 * @param pattern
+	 *            the pattern to normalize. Can't be null.
+	 * @return a new array of characters.
+	 */
+	public static char[] normalize(String pattern) {
+		Validate.notNull(pattern, "The given pattern is null");
+
+		final char[] chars = pattern.toCharArray();
+
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = Character.toLowerCase(chars[i]);
+		}
+
+		return chars;
+	}
+
+	/**
+	 * Computes the keys of the entries appended to the listing since the last
+	 * call.
+	 */
+	private void update() {
+		final int size = listing.size();
+
+		if (count == size) {
+			return;
+		}
+
+		if (offsets.length < size + 1) {
+			this.offsets = Arrays.copyOf(offsets, Math.max(size + 1, offsets.length * 2));
+		}
+
+		for (int i = count; i < size; i++) {
+			final String name = listing.getName(i);
+			final int offset = offsets[i];
+
+			if (keys.length < offset + name.length()) {
+				this.keys = Arrays.copyOf(keys, Math.max(offset + name.length(), keys.length * 2));
+			}
+
+			for (int j = 0; j < name.length(); j++) {
+				keys[offset + j] = Character.toLowerCase(name.charAt(j));
+			}
+
+			offsets[i + 1] = offset + name.length();
+		}
+
+		this.count = size;
+	}
+
+	/**
+	 * Tells whether the key of the entry at the given index contains the
+	 * given (normalized) pattern.
+	 */
+	private boolean matches(int index, char[] pattern) {
+		final int start = offsets[index];
+		final int last = offsets[index + 1] - pattern.length;
+
+		for (int i = start; i <= last; i++) {
+			int j = 0;
+
+			while ((j < pattern.length) && (keys[i + j] == pattern[j])) {
+				j++;
+			}
+
+			if (j == pattern.length) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the indices among the given ones whose entry matches the given
+	 * (normalized) pattern. To narrow a filter as characters are typed, pass
+	 * the result of the previous pattern: any entry matching the new pattern
+	 * matches the previous one if it contains it.
+	 *
+	 * @param indices
+	 *            the indices of the entries to filter (in display order).
+	 *            Can't be null.
+	 * @param pattern
+	 *            the normalized pattern (see {@link #normalize(String)}).
+	 *            Can't be null.
+	 * @return a new array of indices in the same order.
+	 */
+	public int[] filter(int[] indices, char[] pattern) {
+		Validate.notNull(indices, "The given array of indices is null");
+		Validate.notNull(pattern, "The given pattern is null");
+
+		update();
+
+		final int[] result = new int[indices.length];
+
+		int size = 0;
+
+		if (indices.length > count / 4) {
+			// The indices are in display order, testing them in this order
+			// would hop all over the arena. Test all the entries sequentially
+			// then pick the matches in display order
+			final BitSet matches = new BitSet(count);
+
+			for (int i = 0; i < count; i++) {
+				if (matches(i, pattern)) {
+					matches.set(i);
+				}
+			}
+
+			for (int index : indices) {
+				if (matches.get(index)) {
+					result[size++] = index;
+				}
+			}
+		} else {
+			for (int index : indices) {
+				if (matches(index, pattern)) {
+					result[size++] = index;
+				}
+			}
+		}
+
+		return Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * Tells whether the entry at the given index matches the given
+	 * (normalized) pattern.
+	 */
+	public boolean accept(int index, char[] pattern) {
+		Validate.notNull(pattern, "The given pattern is null");
+
+		update();
+
+		return matches(index, pattern);
+	}
+}
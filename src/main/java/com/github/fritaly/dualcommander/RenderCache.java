@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.text.DateFormat;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Caches the views and the formatted values (name, size and date) of the
+ * entries of a listing so that each value is computed once per listing and
+ * painting a cell doesn't allocate anything once the row has been displayed.
+ * The values are indexed by listing index so sorting the listing doesn't
+ * invalidate the cache. The cache is split into pages allocated on demand to
+ * avoid reserving memory for the rows never displayed. Entries may be appended
+ * to the listing after the cache's creation but the existing entries must not
+ * change (except the sizes of the directories, see
+ * {@link #invalidateSize(int)}).
+ * <p>
+ * This class isn't thread-safe, it's meant to be used from the event dispatch
+ * thread.
+ *
+ * @author francois_ritaly
+ */
+public final class RenderCache {
+
+	private static final int PAGE_SIZE = 1024;
+
+	private final DirectoryListing listing;
+
+	private FileEntry[][] entries;
+
+	private String[][] names, sizes, dates;
+
+	private final DecimalFormat decimalFormat;
+
+	private final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+	private final Date date = new Date();
+
+	public RenderCache(DirectoryListing listing) {
+		Validate.notNull(listing, "The given listing is null");
+
+		this.listing = listing;
+
+		final int pages = (listing.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+
+		this.entries = new FileEntry[pages][];
+		this.names = new String[pages][];
+		this.sizes = new String[pages][];
+		this.dates = new String[pages][];
+
+		final DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.US);
+		symbols.setGroupingSeparator(' ');
+
+		this.decimalFormat = new DecimalFormat();
+		this.decimalFormat.setDecimalFormatSymbols(symbols);
+	}
+
+	public DirectoryListing getListing() {
+		return listing;
+	}
+
+	/**
+	 * Returns the page storing the values of the entry at the given index.
+	 */
+	private int getPage(int index) {
+		final int page = index / PAGE_SIZE;
+
+		if (page >= entries.length) {
+			// Entries were appended to the listing, add the missing pages
+			final int pages = (listing.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+
+			this.entries = Arrays.copyOf(entries, pages);
+			this.names = Arrays.copyOf(names, pages);
+			this.sizes = Arrays.copyOf(sizes, pages);
+			this.dates = Arrays.copyOf(dates, pages);
+		}
+
+		return page;
+	}
+
+	public FileEntry getEntry(int index) {
+		final int page = getPage(index), offset = index % PAGE_SIZE;
+
+		if (entries[page] == null) {
+			entries[page] = new FileEntry[PAGE_SIZE];
+		}
+		if (entries[page][offset] == null) {
+			entries[page][offset] = listing.getEntry(index);
+		}
+
+		return entries[page][offset];
+	}
+
+	/**
+	 * Returns the name to display for the entry at the given index. The names
+	 * of the directories are rendered between brackets.
+	 */
+	public String getName(int index) {
+		final int page = getPage(index), offset = index % PAGE_SIZE;
+
+		if (names[page] == null) {
+			names[page] = new String[PAGE_SIZE];
+		}
+		if (names[page][offset] == null) {
+			final String name = getEntry(index).getName();
+
+			names[page][offset] = listing.isDirectory(index) ? "[" + name + "]" : name;
+		}
+
+		return names[page][offset];
+	}
+
+	/**
+	 * Returns the size to display for the entry at the given index, rendered
+	 * with ' ' as grouping separator.
+	 */
+	public String getSize(int index) {
+		final int page = getPage(index), offset = index % PAGE_SIZE;
+
+		if (sizes[page] == null) {
+			sizes[page] = new String[PAGE_SIZE];
+		}
+		if (sizes[page][offset] == null) {
+			sizes[page][offset] = listing.isSizeComputed(index) ? decimalFormat.format(listing.getSize(index)) : "[DIR]";
+		}
+
+		return sizes[page][offset];
+	}
+
+	/**
+	 * Discards the size cached for the entry at the given index (whose
+	 * recursive size was computed).
+	 */
+	public void invalidateSize(int index) {
+		final int page = getPage(index);
+
+		if (sizes[page] != null) {
+			sizes[page][index % PAGE_SIZE] = null;
+		}
+	}
+
+	public String getLastUpdate(int index) {
+		final int page = getPage(index), offset = index % PAGE_SIZE;
+
+		if (dates[page] == null) {
+			dates[page] = new String[PAGE_SIZE];
+		}
+		if (dates[page][offset] == null) {
+			date.setTime(listing.getLastModified(index));
+
+			dates[page][offset] = dateFormat.format(date);
+		}
+
+		return dates[page][offset];
+	}
+}
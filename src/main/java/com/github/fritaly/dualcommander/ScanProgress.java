@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+/**
+ * The progress of a background scan counting files & folders (see
+ * {@link ParallelScan} and {@link CopyPlan}). The counters can be read from
+ * any thread while the scan is in progress.
+ *
+ * @author francois_ritaly
+ */
+public interface ScanProgress {
+
+	public int getFiles();
+
+	public int getDirectories();
+
+	/**
+	 * Returns the total size (in bytes) of the files counted so far.
+	 */
+	public long getTotalSize();
+
+	/**
+	 * Returns the number of entries which couldn't be read so far (they're
+	 * not counted).
+	 */
+	public int getErrorCount();
+
+	/**
+	 * Tells whether the scan completed normally (the counters are final).
+	 */
+	public boolean isDone();
+
+	/**
+	 * Tells whether the scan was aborted by an unexpected error (the counters
+	 * are incomplete).
+	 */
+	public boolean isFailed();
+
+}
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.util.BitSet;
+
+import javax.swing.ListSelectionModel;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+
+import org.apache.commons.lang.Validate;
+
+import com.github.fritaly.dualcommander.event.ChangeEventSource;
+import com.github.fritaly.dualcommander.event.ChangeEventBus;
+
+/**
+ * Tracks the rows selected in a {@link FileTableModel} in a bit set along
+ * with the number of files & folders selected and the total size of the files
+ * selected. The tracker is updated incrementally from the range of rows
+ * reported by each selection event so that selecting all the entries costs a
+ * single pass. The parent directory entry is never counted.
+ * <p>
+ * The listeners are notified once per burst of selection events (the events
+ * are coalesced by a {@link ChangeEventBus}). When the model changes, the rows
+ * are shifted or replaced so the tracker resynchronizes lazily from the
+ * selection model. This class isn't thread-safe and must be used from the EDT.
+ *
+ * @author francois_ritaly
+ */
+public final class SelectionTracker implements ListSelectionListener, TableModelListener, ChangeEventSource {
+
+	private final FileTableModel tableModel;
+
+	private final ListSelectionModel selectionModel;
+
+	/**
+	 * The rows selected (except the parent directory entry).
+	 */
+	private final BitSet selection = new BitSet();
+
+	private int fileCount, folderCount;
+
+	private long fileBytes;
+
+	private final ChangeEventBus eventBus = new ChangeEventBus();
+
+	/**
+	 * Whether the model changed since the last resynchronization.
+	 */
+	private boolean stale;
+
+	public SelectionTracker(FileTableModel tableModel, ListSelectionModel selectionModel) {
+		Validate.notNull(tableModel, "The given table model is null");
+		Validate.notNull(selectionModel, "The given selection model is null");
+
+		this.tableModel = tableModel;
+		this.selectionModel = selectionModel;
+
+		this.tableModel.addTableModelListener(this);
+		this.selectionModel.addListSelectionListener(this);
+
+		resync();
+	}
+
+	@Override
+	public void valueChanged(ListSelectionEvent e) {
+		if (!stale) {
+			// Only the rows in the event's range may have changed
+			final int first = Math.max(e.getFirstIndex(), 0);
+			final int last = Math.min(e.getLastIndex(), tableModel.getRowCount() - 1);
+
+			for (int row = first; row <= last; row++) {
+				update(row, selectionModel.isSelectedIndex(row));
+			}
+		}
+
+		eventBus.publish(new ChangeEvent(this));
+	}
+
+	@Override
+	public void tableChanged(TableModelEvent e) {
+		// The rows shifted or were replaced. The selection model may not have
+		// been updated yet, resynchronize later
+		this.stale = true;
+
+		eventBus.publish(new ChangeEvent(this));
+	}
+
+	private void update(int row, boolean selected) {
+		if (selection.get(row) == selected) {
+			return;
+		}
+
+		final int index = tableModel.getListingIndex(row);
+
+		if (index < 0) {
+			// The parent directory entry isn't counted
+			return;
+		}
+
+		final DirectoryListing listing = tableModel.getListing();
+		final int delta = selected ? 1 : -1;
+
+		if (listing.isDirectory(index)) {
+			folderCount += delta;
+		} else {
+			fileCount += delta;
+			fileBytes += delta * listing.getSize(index);
+		}
+
+		selection.set(row, selected);
+	}
+
+	/**
+	 * Recomputes the selection from scratch.
+	 */
+	private void resync() {
+		this.stale = false;
+
+		selection.clear();
+		fileCount = 0;
+		folderCount = 0;
+		fileBytes = 0;
+
+		if (selectionModel.isSelectionEmpty()) {
+			return;
+		}
+
+		final int last = Math.min(selectionModel.getMaxSelectionIndex(), tableModel.getRowCount() - 1);
+
+		for (int row = selectionModel.getMinSelectionIndex(); row <= last; row++) {
+			if (selectionModel.isSelectedIndex(row)) {
+				update(row, true);
+			}
+		}
+	}
+
+	private void ensureSynchronized() {
+		if (stale) {
+			resync();
+		}
+	}
+
+	/**
+	 * Returns the number of entries selected (files & folders).
+	 *
+	 * @return a positive integer.
+	 */
+	public int getCount() {
+		ensureSynchronized();
+
+		return fileCount + folderCount;
+	}
+
+	public int getFileCount() {
+		ensureSynchronized();
+
+		return fileCount;
+	}
+
+	public int getFolderCount() {
+		ensureSynchronized();
+
+		return folderCount;
+	}
+
+	/**
+	 * Returns the total size (in bytes) of the files selected. The folders
+	 * aren't counted.
+	 *
+	 * @return a positive long.
+	 */
+	public long getFileBytes() {
+		ensureSynchronized();
+
+		return fileBytes;
+	}
+
+	/**
+	 * Returns the first row selected (except the parent directory entry).
+	 *
+	 * @return the index of the first row selected or -1 if there's none.
+	 */
+	public int getFirstSelectedRow() {
+		ensureSynchronized();
+
+		return selection.nextSetBit(0);
+	}
+
+	/**
+	 * Stops tracking the selection.
+	 */
+	public void dispose() {
+		this.tableModel.removeTableModelListener(this);
+		this.selectionModel.removeListSelectionListener(this);
+	}
+
+	@Override
+	public void addChangeListener(ChangeListener listener) {
+		this.eventBus.addChangeListener(listener);
+	}
+
+	@Override
+	public void removeChangeListener(ChangeListener listener) {
+		this.eventBus.removeChangeListener(listener);
+	}
+}
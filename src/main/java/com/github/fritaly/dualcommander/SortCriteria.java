@@ -16,18 +16,18 @@
  */
 package com.github.fritaly.dualcommander;
 
-import java.io.File;
 import java.util.Comparator;
 
 /**
- * Enumerates the possible criteria to sort files.
+ * Enumerates the possible criteria to sort files. The criteria only read the
+ * attributes captured in the {@link FileEntry} snapshots.
  *
  * @author francois_ritaly
  */
-public enum SortCriteria implements Comparator<File> {
-	TYPE {
+public enum SortCriteria implements Comparator<FileEntry> {
+	TYPE(0) {
 		@Override
-		public int compare(File f1, File f2) {
+		public int compare(FileEntry f1, FileEntry f2) {
 			if (f1.isFile()) {
 				if (f2.isFile()) {
 					// f1 & f2 are files
@@ -47,17 +47,17 @@ public enum SortCriteria implements Comparator<File> {
 			}
 		}
 	},
-	NAME {
+	NAME(1) {
 		@Override
-		public int compare(File f1, File f2) {
-			return f1.getName().compareToIgnoreCase(f2.getName());
+		public int compare(FileEntry f1, FileEntry f2) {
+			return f1.getFoldedName().compareTo(f2.getFoldedName());
 		}
 	},
-	SIZE {
+	SIZE(2) {
 		@Override
-		public int compare(File f1, File f2) {
-			final long size1 = f1.isDirectory() ? 0 : f1.length();
-			final long size2 = f2.isDirectory() ? 0 : f2.length();
+		public int compare(FileEntry f1, FileEntry f2) {
+			final long size1 = f1.getSize();
+			final long size2 = f2.getSize();
 
 			if (size1 < size2) {
 				return -1;
@@ -68,16 +68,75 @@ public enum SortCriteria implements Comparator<File> {
 			return 0;
 		}
 	},
-	LAST_UPDATE {
+	LAST_UPDATE(3) {
 		@Override
-		public int compare(File f1, File f2) {
-			if (f1.lastModified() < f2.lastModified()) {
+		public int compare(FileEntry f1, FileEntry f2) {
+			if (f1.getLastModified() < f2.getLastModified()) {
 				return -1;
-			} else if (f1.lastModified() > f2.lastModified()) {
+			} else if (f1.getLastModified() > f2.getLastModified()) {
 				return +1;
 			}
 
 			return 0;
 		}
+	},
+	/**
+	 * Sorts the files by (case-insensitive) extension. The folders have no
+	 * extension.
+	 */
+	EXTENSION(0) {
+		@Override
+		public int compare(FileEntry f1, FileEntry f2) {
+			return f1.getExtension().compareTo(f2.getExtension());
+		}
+	},
+	/**
+	 * Sorts the files by name comparing the numbers by value ("file2" <
+	 * "file10").
+	 */
+	NATURAL_NAME(1) {
+		@Override
+		public int compare(FileEntry f1, FileEntry f2) {
+			return f1.getNaturalKey().compareTo(f2.getNaturalKey());
+		}
 	};
-}
\ No newline at end of file
+
+	/**
+	 * The index of the table column sorted by this criteria.
+	 */
+	private final int column;
+
+	private SortCriteria(int column) {
+		this.column = column;
+	}
+
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * Returns the composite order applied when sorting the files by this
+	 * criteria: this criteria followed by the criteria breaking the ties so
+	 * that the resulting order is always the same.
+	 *
+	 * @return a sort order. Never returns null.
+	 */
+	public SortOrder getSortOrder() {
+		switch (this) {
+		case TYPE:
+			return new SortOrder(TYPE, EXTENSION, NATURAL_NAME, NAME);
+		case EXTENSION:
+			return new SortOrder(EXTENSION, NATURAL_NAME, NAME);
+		case NAME:
+			return new SortOrder(NAME);
+		case NATURAL_NAME:
+			return new SortOrder(NATURAL_NAME, NAME);
+		case SIZE:
+			return new SortOrder(SIZE, NATURAL_NAME, NAME);
+		case LAST_UPDATE:
+			return new SortOrder(LAST_UPDATE, NATURAL_NAME, NAME);
+		default:
+			throw new UnsupportedOperationException("Unsupported sort criteria: " + this);
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Composite sort order made of several {@link SortCriteria} applied in
+ * sequence: the 2nd criteria breaks the ties of the 1st one, etc.
+ *
+ * @author francois_ritaly
+ */
+public final class SortOrder implements Comparator<FileEntry> {
+
+	private final SortCriteria[] criteria;
+
+	public SortOrder(SortCriteria... criteria) {
+		Validate.notEmpty(criteria, "The given sort criteria is empty");
+		Validate.noNullElements(criteria, "The given sort criteria contains a null element");
+
+		this.criteria = criteria.clone();
+	}
+
+	public SortCriteria getPrimaryCriteria() {
+		return criteria[0];
+	}
+
+	public List<SortCriteria> getCriteria() {
+		return Collections.unmodifiableList(Arrays.asList(criteria));
+	}
+
+	@Override
+	public int compare(FileEntry f1, FileEntry f2) {
+		for (SortCriteria element : criteria) {
+			final int result = element.compare(f1, f2);
+
+			if (result != 0) {
+				return result;
+			}
+		}
+
+		return 0;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (obj instanceof SortOrder) {
+			return Arrays.equals(this.criteria, ((SortOrder) obj).criteria);
+		}
+
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(criteria);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(criteria);
+	}
+}
@@ -16,86 +16,391 @@
  */
 package com.github.fritaly.dualcommander;
 
+import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.Iterator;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.NoSuchElementException;
+import java.util.Random;
 
 import javax.swing.AbstractListModel;
 
 import org.apache.commons.lang.Validate;
 
+/**
+ * List model keeping its (distinct) elements sorted. The elements are stored
+ * in an order-statistic tree (a treap whose nodes know the size of their
+ * sub-tree) so that the positional access, the insertions and the removals run
+ * in O(log n). Each mutation fires an event reporting precisely the interval
+ * added or removed.
+ *
+ * @author francois_ritaly
+ */
 public final class SortedListModel<E> extends AbstractListModel<E> {
 
 	private static final long serialVersionUID = 4813672030693748114L;
 
-	private final SortedSet<E> model;
+	private static final class Node<E> implements Serializable {
+
+		private static final long serialVersionUID = -2914408413185573212L;
+
+		private final E element;
+
+		/**
+		 * The random priority of the node. A parent's priority is always
+		 * greater than its children's which keeps the tree balanced (on
+		 * average).
+		 */
+		private final int priority;
+
+		/**
+		 * The number of nodes in the sub-tree rooted at this node.
+		 */
+		private int size = 1;
+
+		private Node<E> left, right;
+
+		Node(E element, int priority) {
+			this.element = element;
+			this.priority = priority;
+		}
+
+		void update() {
+			this.size = 1 + size(left) + size(right);
+		}
+	}
+
+	/**
+	 * The 2 trees resulting from a split.
+	 */
+	private static final class Split<E> {
+
+		/**
+		 * The tree containing the elements lesser than the split element.
+		 */
+		private Node<E> lesser;
+
+		/**
+		 * The tree containing the other elements.
+		 */
+		private Node<E> greater;
+	}
+
+	private static int size(Node<?> node) {
+		return (node != null) ? node.size : 0;
+	}
+
+	/**
+	 * The comparator sorting the elements (null for the natural order).
+	 */
+	private final Comparator<E> comparator;
+
+	private final Random random = new Random();
+
+	private Node<E> root;
 
 	public SortedListModel() {
 		// Use the natural order
-		this.model = new TreeSet<E>();
+		this.comparator = null;
 	}
 
 	public SortedListModel(Comparator<E> comparator) {
 		Validate.notNull(comparator, "The given comparator is null");
 
-		this.model = new TreeSet<E>(comparator);
+		this.comparator = comparator;
+	}
+
+	@SuppressWarnings("unchecked")
+	private int compare(E e1, E e2) {
+		return (comparator != null) ? comparator.compare(e1, e2) : ((Comparable<? super E>) e1).compareTo(e2);
 	}
 
 	public int getSize() {
-		return model.size();
+		return size(root);
 	}
 
-	@SuppressWarnings("unchecked")
 	public E getElementAt(int index) {
-		return (E) model.toArray()[index];
+		if ((index < 0) || (index >= getSize())) {
+			throw new IndexOutOfBoundsException(String.format("Invalid index %d (size: %d)", index, getSize()));
+		}
+
+		Node<E> node = root;
+
+		while (true) {
+			final int leftSize = size(node.left);
+
+			if (index < leftSize) {
+				node = node.left;
+			} else if (index > leftSize) {
+				index -= leftSize + 1;
+				node = node.right;
+			} else {
+				return node.element;
+			}
+		}
+	}
+
+	/**
+	 * Returns the position of the given element.
+	 *
+	 * @param element
+	 *            the element to search for.
+	 * @return the index of the element or -1 if not found.
+	 */
+	public int indexOf(E element) {
+		Node<E> node = root;
+		int index = 0;
+
+		while (node != null) {
+			final int result = compare(element, node.element);
+
+			if (result < 0) {
+				node = node.left;
+			} else if (result > 0) {
+				index += size(node.left) + 1;
+				node = node.right;
+			} else {
+				return index + size(node.left);
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns the number of elements lesser than the given one (that is the
+	 * position where it would be inserted).
+	 */
+	private int rank(E element) {
+		Node<E> node = root;
+		int rank = 0;
+
+		while (node != null) {
+			if (compare(element, node.element) <= 0) {
+				node = node.left;
+			} else {
+				rank += size(node.left) + 1;
+				node = node.right;
+			}
+		}
+
+		return rank;
+	}
+
+	/**
+	 * Splits the given tree into the elements lesser than the given one and
+	 * the other ones.
+	 */
+	private Split<E> split(Node<E> node, E element) {
+		if (node == null) {
+			return new Split<E>();
+		}
+
+		final Split<E> result;
+
+		if (compare(node.element, element) < 0) {
+			result = split(node.right, element);
+
+			node.right = result.lesser;
+			result.lesser = node;
+		} else {
+			result = split(node.left, element);
+
+			node.left = result.greater;
+			result.greater = node;
+		}
+
+		node.update();
+
+		return result;
+	}
+
+	/**
+	 * Merges the 2 given trees. The elements of the 1st one must all be
+	 * lesser than the ones of the 2nd one.
+	 */
+	private Node<E> merge(Node<E> left, Node<E> right) {
+		if (left == null) {
+			return right;
+		}
+		if (right == null) {
+			return left;
+		}
+
+		if (left.priority > right.priority) {
+			left.right = merge(left.right, right);
+			left.update();
+
+			return left;
+		}
+
+		right.left = merge(left, right.left);
+		right.update();
+
+		return right;
+	}
+
+	/**
+	 * Inserts the given element without firing any event.
+	 *
+	 * @return the index of the element inserted or -1 if the model already
+	 *         contains it.
+	 */
+	private int insert(E element) {
+		Validate.notNull(element, "The given element is null");
+
+		if (indexOf(element) >= 0) {
+			return -1;
+		}
+
+		final int index = rank(element);
+		final Split<E> trees = split(root, element);
+
+		this.root = merge(merge(trees.lesser, new Node<E>(element, random.nextInt())), trees.greater);
+
+		return index;
+	}
+
+	private Node<E> remove(Node<E> node, E element) {
+		final int result = compare(element, node.element);
+
+		if (result == 0) {
+			return merge(node.left, node.right);
+		}
+
+		if (result < 0) {
+			node.left = remove(node.left, element);
+		} else {
+			node.right = remove(node.right, element);
+		}
+
+		node.update();
+
+		return node;
 	}
 
 	public void add(E element) {
-		if (model.add(element)) {
-			fireContentsChanged(this, 0, getSize());
+		final int index = insert(element);
+
+		if (index >= 0) {
+			fireIntervalAdded(this, index, index);
 		}
 	}
 
 	public void addAll(E[] elements) {
-		final Collection<E> collection = Arrays.asList(elements);
+		Validate.notNull(elements, "The given array of elements is null");
+
+		if (getSize() == 0) {
+			// Insert the elements in order and fire a single event
+			final E[] sorted = elements.clone();
+
+			if (comparator != null) {
+				Arrays.sort(sorted, comparator);
+			} else {
+				Arrays.sort(sorted);
+			}
 
-		model.addAll(collection);
+			for (E element : sorted) {
+				insert(element);
+			}
 
-		fireContentsChanged(this, 0, getSize());
+			if (getSize() > 0) {
+				fireIntervalAdded(this, 0, getSize() - 1);
+			}
+		} else {
+			for (E element : elements) {
+				add(element);
+			}
+		}
 	}
 
 	public void clear() {
-		model.clear();
+		final int size = getSize();
+
+		this.root = null;
 
-		fireContentsChanged(this, 0, getSize());
+		if (size > 0) {
+			fireIntervalRemoved(this, 0, size - 1);
+		}
 	}
 
 	public boolean contains(E element) {
-		return model.contains(element);
+		return indexOf(element) >= 0;
 	}
 
 	public E firstElement() {
-		return model.first();
+		if (root == null) {
+			throw new NoSuchElementException();
+		}
+
+		return getElementAt(0);
 	}
 
+	/**
+	 * Returns an iterator over the elements in order. The iterator doesn't
+	 * support the removal of elements.
+	 */
 	public Iterator<E> iterator() {
-		return model.iterator();
+		return new Iterator<E>() {
+
+			private final Deque<Node<E>> stack = new ArrayDeque<>();
+
+			{
+				pushLeft(root);
+			}
+
+			private void pushLeft(Node<E> node) {
+				for (; node != null; node = node.left) {
+					stack.push(node);
+				}
+			}
+
+			@Override
+			public boolean hasNext() {
+				return !stack.isEmpty();
+			}
+
+			@Override
+			public E next() {
+				if (stack.isEmpty()) {
+					throw new NoSuchElementException();
+				}
+
+				final Node<E> node = stack.pop();
+
+				pushLeft(node.right);
+
+				return node.element;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
 	}
 
 	public E lastElement() {
-		return model.last();
+		if (root == null) {
+			throw new NoSuchElementException();
+		}
+
+		return getElementAt(getSize() - 1);
 	}
 
 	public boolean removeElement(E element) {
-		final boolean removed = model.remove(element);
+		final int index = indexOf(element);
 
-		if (removed) {
-			fireContentsChanged(this, 0, getSize());
+		if (index < 0) {
+			return false;
 		}
 
-		return removed;
+		this.root = remove(root, element);
+
+		fireIntervalRemoved(this, index, index);
+
+		return true;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.swing.Timer;
+
+import org.apache.commons.lang.Validate;
+import org.apache.log4j.Logger;
+
+/**
+ * Periodically hibernates the inactive browser tabs to release the memory
+ * used by their listings. A tab is hibernated once it has been inactive for
+ * longer than the configured delay or when the inactive tabs use more memory
+ * than the configured budget (the least recently used tabs first).
+ *
+ * @author francois_ritaly
+ */
+public final class TabHibernator implements ActionListener {
+
+	/**
+	 * Interval (in ms) between 2 checks of the inactive tabs.
+	 */
+	private static final int CHECK_INTERVAL = 30 * 1000;
+
+	private final Logger logger = Logger.getLogger(this.getClass());
+
+	private final UserPreferences preferences;
+
+	private final TabbedPane[] panes;
+
+	private final Timer timer;
+
+	public TabHibernator(UserPreferences preferences, TabbedPane... panes) {
+		Validate.notNull(preferences, "The given user preferences are null");
+		Validate.notEmpty(panes, "The given array of panes is null or empty");
+
+		this.preferences = preferences;
+		this.panes = panes.clone();
+		this.timer = new Timer(CHECK_INTERVAL, this);
+	}
+
+	public void start() {
+		timer.start();
+	}
+
+	public void stop() {
+		timer.stop();
+	}
+
+	@Override
+	public void actionPerformed(ActionEvent e) {
+		hibernate(System.currentTimeMillis());
+	}
+
+	/**
+	 * Hibernates the inactive tabs exceeding the age or memory limits.
+	 *
+	 * @param now
+	 *            the current date.
+	 */
+	void hibernate(long now) {
+		// The candidates are the inactive tabs still holding a listing
+		final List<DirectoryBrowser> browsers = new ArrayList<>();
+
+		for (TabbedPane pane : panes) {
+			for (int i = 0; i < pane.getTabCount(); i++) {
+				final DirectoryBrowser browser = pane.getBrowserAt(i);
+
+				if (!browser.isActive() && !browser.isHibernated()) {
+					browsers.add(browser);
+				}
+			}
+		}
+
+		if (browsers.isEmpty()) {
+			return;
+		}
+
+		// The least recently used first
+		Collections.sort(browsers, new Comparator<DirectoryBrowser>() {
+			@Override
+			public int compare(DirectoryBrowser b1, DirectoryBrowser b2) {
+				return Long.compare(b1.getDeactivationTime(), b2.getDeactivationTime());
+			}
+		});
+
+		final long delay = preferences.getHibernationDelay() * 60L * 1000;
+		final long budget = preferences.getHibernationBudget() * 1024L * 1024;
+
+		long memoryUsage = 0;
+
+		for (DirectoryBrowser browser : browsers) {
+			memoryUsage += browser.getMemoryUsage();
+		}
+
+		int count = 0;
+
+		for (DirectoryBrowser browser : browsers) {
+			final boolean expired = (delay > 0) && (now - browser.getDeactivationTime() >= delay);
+
+			if (!expired && (memoryUsage <= budget)) {
+				// The next tabs are more recent & within budget
+				break;
+			}
+
+			memoryUsage -= browser.getMemoryUsage();
+
+			browser.hibernate();
+
+			count++;
+		}
+
+		if ((count > 0) && logger.isInfoEnabled()) {
+			logger.info(String.format("Hibernated %d tab(s), the inactive tabs now use %d bytes", count, memoryUsage));
+		}
+	}
+}
@@ -21,6 +21,7 @@ import java.awt.event.FocusListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.io.File;
+import java.io.IOException;
 import java.util.prefs.Preferences;
 
 import javax.swing.JTabbedPane;
@@ -38,13 +39,38 @@ public class TabbedPane extends JTabbedPane implements KeyListener, ChangeListen
 
 	private final UserPreferences preferences;
 
-	public TabbedPane(UserPreferences preferences) {
+	private final DirectoryCache directoryCache;
+
+	private final DirectoryWatcher directoryWatcher;
+
+	private final IoExecutor ioExecutor;
+
+	private final DirectorySizeIndex sizeIndex;
+
+	private final ListingSnapshots snapshots;
+
+	public TabbedPane(UserPreferences preferences, DirectoryCache directoryCache, DirectoryWatcher directoryWatcher,
+			IoExecutor ioExecutor, DirectorySizeIndex sizeIndex, ListingSnapshots snapshots) {
+
 		// Put the tabs at the top
 		super(JTabbedPane.TOP);
 
 		Validate.notNull(preferences, "The given user preferences are null");
+		Validate.notNull(directoryCache, "The given directory cache is null");
+		Validate.notNull(directoryWatcher, "The given directory watcher is null");
+		Validate.notNull(ioExecutor, "The given I/O executor is null");
+		Validate.notNull(sizeIndex, "The given directory size index is null");
+		Validate.notNull(snapshots, "The given listing snapshots are null");
 
 		this.preferences = preferences;
+		this.directoryCache = directoryCache;
+		this.directoryWatcher = directoryWatcher;
+		this.ioExecutor = ioExecutor;
+		this.sizeIndex = sizeIndex;
+		this.snapshots = snapshots;
+
+		// Listen to the tab selection changes to activate the selected browser
+		addChangeListener(this);
 	}
 
 	public DirectoryBrowser addBrowserTab() {
@@ -52,8 +78,14 @@ public class TabbedPane extends JTabbedPane implements KeyListener, ChangeListen
 	}
 
 	public DirectoryBrowser addBrowserTab(File directory) {
+		return addBrowserTab(directory, null);
+	}
+
+	private DirectoryBrowser addBrowserTab(File directory, DirectoryListing snapshot) {
 		// The called constructor will validate the parameter
-		final DirectoryBrowser browser = new DirectoryBrowser(preferences, directory);
+		// The browser is activated (and lists its directory) once selected
+		final DirectoryBrowser browser = new DirectoryBrowser(preferences, directoryCache, directoryWatcher, ioExecutor,
+				sizeIndex, directory, snapshot, false);
 		browser.addChangeListener(this);
 		browser.addKeyListener(this);
 		browser.addFocusListener(this);
@@ -79,6 +111,9 @@ public class TabbedPane extends JTabbedPane implements KeyListener, ChangeListen
 		browser.removeKeyListener(this);
 		browser.removeFocusListener(this);
 
+		// Stop watching the browser's directory
+		browser.close();
+
 		final int index = getSelectedIndex();
 
 		removeTabAt(index);
@@ -88,6 +123,17 @@ public class TabbedPane extends JTabbedPane implements KeyListener, ChangeListen
 		}
 	}
 
+	/**
+	 * Marks the directories of all the browsers as to be listed again. Only
+	 * the active browser lists its directory immediately, the other ones will
+	 * when selected.
+	 */
+	public void markDirty() {
+		for (int i = 0; i < getTabCount(); i++) {
+			getBrowserAt(i).markDirty();
+		}
+	}
+
 	public DirectoryBrowser getActiveBrowser() {
 		return (DirectoryBrowser) getSelectedComponent();
 	}
@@ -143,7 +189,12 @@ public class TabbedPane extends JTabbedPane implements KeyListener, ChangeListen
 
 	@Override
 	public void stateChanged(ChangeEvent e) {
-		if (e.getSource() == getSelectedComponent()) {
+		if (e.getSource() == this) {
+			// The selected tab changed, only the selected browser is active
+			for (int i = 0; i < getTabCount(); i++) {
+				getBrowserAt(i).setActive(i == getSelectedIndex());
+			}
+		} else if (e.getSource() == getSelectedComponent()) {
 			// Update the current tab's title
 			this.setTitleAt(getSelectedIndex(), getActiveBrowser().getDirectory().getName());
 
@@ -188,12 +239,12 @@ public class TabbedPane extends JTabbedPane implements KeyListener, ChangeListen
 		for (int i = 0; i < tabCount; i++) {
 			final File directory = new File(preferences.get(String.format("tab.%d.directory", i), "."));
 
-			if (directory.exists()) {
-				// Ensure the directory exists. Create a new tab
-				addBrowserTab(directory);
-			} else {
-				logger.warn(String.format("The directory '%s' doesn't exist", directory.getAbsolutePath()));
-			}
+			// Create a new tab displaying the last listing of the directory
+			// (if any) while it's refreshed. The browser validates the
+			// directory in the background once displayed (the file system may
+			// be stalled) and falls back to the home directory if it no longer
+			// exists
+			addBrowserTab(directory, snapshots.load(directory, this.preferences.isShowHidden()));
 		}
 
 		// Ensure the tabbed pane has at least one tab
@@ -208,7 +259,21 @@ public class TabbedPane extends JTabbedPane implements KeyListener, ChangeListen
 		preferences.putInt("tab.count", getTabCount());
 
 		for (int i = 0; i < getTabCount(); i++) {
-			preferences.put(String.format("tab.%d.directory", i), getBrowserAt(i).getDirectory().getAbsolutePath());
+			final DirectoryBrowser browser = getBrowserAt(i);
+
+			preferences.put(String.format("tab.%d.directory", i), browser.getDirectory().getAbsolutePath());
+
+			// Persist the tab's listing to display it at the next start
+			final DirectoryListing snapshot = browser.getSnapshot();
+
+			if (snapshot != null) {
+				try {
+					snapshots.save(snapshot, this.preferences.isShowHidden());
+				} catch (IOException e) {
+					logger.warn(String.format("[%s] Unable to save the snapshot of %s", getComponentLabel(),
+							browser.getDirectory().getAbsolutePath()), e);
+				}
+			}
 		}
 	}
 
@@ -0,0 +1,326 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Walks file trees in a single pass and counts their files & directories and
+ * the total size of the files. The walker:
+ * <ul>
+ * <li>follows the symbolic links or not (see {@link #isFollowLinks()}). When
+ * they're not followed, a link is counted as a file (of its own size),</li>
+ * <li>detects the cycles created by symbolic links (the looping directory is
+ * skipped),</li>
+ * <li>optionally de-duplicates the entries by file key (device & inode) so
+ * that a file reachable through several hard links, or a directory reachable
+ * through several symbolic links, is only counted once,</li>
+ * <li>collects the errors instead of aborting the walk.</li>
+ * </ul>
+ * Subclasses can act upon the entries (see
+ * {@link #fileVisited(Path, BasicFileAttributes)},
+ * {@link #directoryEntered(Path, BasicFileAttributes)} and
+ * {@link #directoryVisited(Path)}). This class isn't thread-safe except
+ * {@link #stop()}.
+ *
+ * @author francois_ritaly
+ */
+public class TreeWalker extends SimpleFileVisitor<Path> {
+
+	/**
+	 * The maximum number of errors retained (the other ones are only counted).
+	 */
+	public static final int MAX_ERRORS = 100;
+
+	private final boolean followLinks;
+
+	private final boolean deduplicate;
+
+	/**
+	 * The keys of the files & directories already visited (when
+	 * de-duplicating).
+	 */
+	private final Set<Object> fileKeys = new HashSet<>();
+
+	private int files, directories, links, duplicates, cycles;
+
+	/**
+	 * The number of errors (can be read by another thread while walking).
+	 */
+	private volatile int errorCount;
+
+	private long totalSize;
+
+	private final Map<Path, IOException> errors = new LinkedHashMap<>();
+
+	/**
+	 * Whether the walk was stopped.
+	 */
+	private volatile boolean stopped;
+
+	/**
+	 * Creates a walker which doesn't follow the symbolic links and counts the
+	 * hard-linked files once.
+	 */
+	public TreeWalker() {
+		this(false, true);
+	}
+
+	public TreeWalker(boolean followLinks, boolean deduplicate) {
+		this.followLinks = followLinks;
+		this.deduplicate = deduplicate;
+	}
+
+	/**
+	 * Walks the tree rooted at the given path (which can also denote a
+	 * file). The errors are collected (see {@link #getErrors()}).
+	 *
+	 * @param start
+	 *            the root of the tree. Can't be null.
+	 */
+	public void walk(Path start) {
+		Validate.notNull(start, "The given path is null");
+
+		final Set<FileVisitOption> options = followLinks ? EnumSet.of(FileVisitOption.FOLLOW_LINKS) : EnumSet
+				.noneOf(FileVisitOption.class);
+
+		try {
+			Files.walkFileTree(start, options, Integer.MAX_VALUE, this);
+		} catch (IOException e) {
+			// Not supposed to happen (the errors are reported to the visitor)
+			addError(start, e);
+		}
+	}
+
+	/**
+	 * Tells whether the given attributes denote an entry already visited (and
+	 * records it otherwise).
+	 */
+	private boolean isDuplicate(BasicFileAttributes attrs) {
+		if (!deduplicate) {
+			return false;
+		}
+
+		final Object key = attrs.fileKey();
+
+		// The key may not be available (depends on the file system)
+		return (key != null) && !fileKeys.add(key);
+	}
+
+	private void addError(Path path, IOException exception) {
+		errorCount++;
+
+		if (errors.size() < MAX_ERRORS) {
+			errors.put(path, exception);
+		}
+	}
+
+	/**
+	 * Stops the walk in progress as soon as possible. Can be called from any
+	 * thread.
+	 */
+	public void stop() {
+		this.stopped = true;
+	}
+
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	@Override
+	public final FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+		if (stopped) {
+			return FileVisitResult.TERMINATE;
+		}
+
+		if (isDuplicate(attrs)) {
+			// Already walked through another link
+			duplicates++;
+
+			return FileVisitResult.SKIP_SUBTREE;
+		}
+
+		directories++;
+
+		try {
+			directoryEntered(dir, attrs);
+		} catch (IOException e) {
+			addError(dir, e);
+		}
+
+		return FileVisitResult.CONTINUE;
+	}
+
+	@Override
+	public final FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+		if (stopped) {
+			return FileVisitResult.TERMINATE;
+		}
+
+		if (isDuplicate(attrs)) {
+			// Another hard link to a file already counted
+			duplicates++;
+
+			return FileVisitResult.CONTINUE;
+		}
+
+		if (attrs.isSymbolicLink()) {
+			links++;
+		}
+
+		files++;
+		totalSize += attrs.size();
+
+		try {
+			fileVisited(file, attrs);
+		} catch (IOException e) {
+			addError(file, e);
+		}
+
+		return FileVisitResult.CONTINUE;
+	}
+
+	@Override
+	public final FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+		if (exc instanceof FileSystemLoopException) {
+			// The link points to one of its ancestors
+			cycles++;
+		} else {
+			addError(file, exc);
+		}
+
+		return FileVisitResult.CONTINUE;
+	}
+
+	@Override
+	public final FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+		if (exc != null) {
+			// The directory couldn't be fully listed
+			addError(dir, exc);
+		}
+
+		try {
+			directoryVisited(dir);
+		} catch (IOException e) {
+			addError(dir, e);
+		}
+
+		return stopped ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+	}
+
+	/**
+	 * Invoked for each file (or symbolic link not followed) visited for the
+	 * first time. Does nothing by default.
+	 *
+	 * @throws IOException
+	 *             to report an error (the walk goes on).
+	 */
+	protected void fileVisited(Path file, BasicFileAttributes attrs) throws IOException {
+	}
+
+	/**
+	 * Invoked for each directory visited for the first time before its
+	 * entries. Does nothing by default.
+	 *
+	 * @throws IOException
+	 *             to report an error (the walk goes on).
+	 */
+	protected void directoryEntered(Path dir, BasicFileAttributes attrs) throws IOException {
+	}
+
+	/**
+	 * Invoked once all the entries of a directory have been visited. Does
+	 * nothing by default.
+	 *
+	 * @throws IOException
+	 *             to report an error (the walk goes on).
+	 */
+	protected void directoryVisited(Path dir) throws IOException {
+	}
+
+	public boolean isFollowLinks() {
+		return followLinks;
+	}
+
+	public boolean isDeduplicate() {
+		return deduplicate;
+	}
+
+	public int getFiles() {
+		return files;
+	}
+
+	public int getDirectories() {
+		return directories;
+	}
+
+	/**
+	 * Returns the number of symbolic links counted as files (when the links
+	 * aren't followed).
+	 */
+	public int getLinks() {
+		return links;
+	}
+
+	/**
+	 * Returns the number of entries skipped because already visited.
+	 */
+	public int getDuplicates() {
+		return duplicates;
+	}
+
+	/**
+	 * Returns the number of cycles detected (when following the links).
+	 */
+	public int getCycles() {
+		return cycles;
+	}
+
+	public long getTotalSize() {
+		return totalSize;
+	}
+
+	/**
+	 * Returns the number of errors which occurred during the walk.
+	 */
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * Returns the first errors which occurred during the walk (see
+	 * {@link #MAX_ERRORS}) keyed by path.
+	 */
+	public Map<Path, IOException> getErrors() {
+		return Collections.unmodifiableMap(errors);
+	}
+}
@@ -0,0 +1,461 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.Validate;
+
+/**
+ * Renders the disk usage of a directory as a squarified treemap: each
+ * directory is drawn as a rectangle whose area is proportional to its size
+ * and which contains the rectangles of its sub-directories (the files of a
+ * directory are drawn as a single gray rectangle). The rectangles are laid out
+ * from the aggregated sizes of the {@link DiskUsageScan.Node}s, only down to
+ * the ones large enough to be seen, so the cost of a layout depends on the
+ * size of the component and not on the number of files.
+ * <p>
+ * Clicking a rectangle zooms into its directory, a right-click zooms out. The
+ * layout is only computed when {@link #refresh()} is called (or the component
+ * is resized).
+ *
+ * @author francois_ritaly
+ */
+public class TreemapPanel extends JComponent {
+
+	private static final long serialVersionUID = -7251617330004961327L;
+
+	/**
+	 * The name of the property fired when the displayed directory changes.
+	 */
+	public static final String PROPERTY_ROOT = "root";
+
+	/**
+	 * The maximum depth of the directories drawn below the root.
+	 */
+	private static final int MAX_DEPTH = 6;
+
+	/**
+	 * The minimum width & height (in pixels) of a rectangle to lay out its
+	 * content.
+	 */
+	private static final int MIN_SIZE = 12;
+
+	/**
+	 * The minimum area (in pixels) of a rectangle to be drawn.
+	 */
+	private static final double MIN_AREA = 4;
+
+	private static final Color FILES_COLOR = new Color(0xD0D0D0);
+
+	/**
+	 * A rectangle of the treemap.
+	 */
+	private static final class Cell {
+
+		/**
+		 * The directory drawn or whose files are drawn.
+		 */
+		private final DiskUsageScan.Node node;
+
+		/**
+		 * Whether the cell represents the files of the directory.
+		 */
+		private final boolean files;
+
+		private final long size;
+
+		private final Color color;
+
+		private final Rectangle bounds;
+
+		Cell(DiskUsageScan.Node node, boolean files, long size, Color color, Rectangle bounds) {
+			this.node = node;
+			this.files = files;
+			this.size = size;
+			this.color = color;
+			this.bounds = bounds;
+		}
+
+		String getLabel() {
+			return files ? String.format("(%d files)", node.getOwnFiles()) : node.getName();
+		}
+	}
+
+	/**
+	 * An item to lay out: a directory or the files of a directory.
+	 */
+	private static final class Item {
+
+		private final DiskUsageScan.Node node;
+
+		private final boolean files;
+
+		private final long size;
+
+		private double area;
+
+		Item(DiskUsageScan.Node node, boolean files, long size) {
+			this.node = node;
+			this.files = files;
+			this.size = size;
+		}
+	}
+
+	private DiskUsageScan.Node root;
+
+	/**
+	 * The cells laid out in drawing order (the parents before their
+	 * children).
+	 */
+	private List<Cell> cells = new ArrayList<>();
+
+	public TreemapPanel(DiskUsageScan.Node root) {
+		Validate.notNull(root, "The given root is null");
+
+		this.root = root;
+
+		setPreferredSize(new Dimension(640, 480));
+		setFont(Utils.getDefaultFont());
+		setToolTipText("");
+
+		addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				if (SwingUtilities.isRightMouseButton(e)) {
+					zoomOut();
+				} else {
+					final Cell cell = getCellAt(e.getX(), e.getY());
+
+					if ((cell != null) && (cell.node != TreemapPanel.this.root)) {
+						setRoot(cell.node);
+					}
+				}
+			}
+		});
+	}
+
+	public DiskUsageScan.Node getRoot() {
+		return root;
+	}
+
+	/**
+	 * Displays the given directory and notifies the listeners of the
+	 * {@link #PROPERTY_ROOT} property.
+	 */
+	public void setRoot(DiskUsageScan.Node root) {
+		Validate.notNull(root, "The given root is null");
+
+		final DiskUsageScan.Node oldRoot = this.root;
+
+		this.root = root;
+
+		refresh();
+
+		firePropertyChange(PROPERTY_ROOT, oldRoot, root);
+	}
+
+	/**
+	 * Displays the parent of the directory displayed (if any).
+	 */
+	public void zoomOut() {
+		if (root.getParent() != null) {
+			setRoot(root.getParent());
+		}
+	}
+
+	/**
+	 * Lays out the cells again from the current sizes and repaints the
+	 * component.
+	 */
+	public void refresh() {
+		final List<Cell> cells = new ArrayList<>();
+
+		final Rectangle bounds = new Rectangle(0, 0, getWidth(), getHeight());
+
+		if ((bounds.width > 0) && (bounds.height > 0)) {
+			add(cells, root, bounds, 0, new Color(0xF0F0F0));
+		}
+
+		this.cells = cells;
+
+		repaint();
+	}
+
+	@Override
+	public void setBounds(int x, int y, int width, int height) {
+		final boolean resized = (width != getWidth()) || (height != getHeight());
+
+		super.setBounds(x, y, width, height);
+
+		if (resized) {
+			refresh();
+		}
+	}
+
+	/**
+	 * Adds the cell of the given directory then lays out its content.
+	 */
+	private void add(List<Cell> cells, DiskUsageScan.Node node, Rectangle bounds, int depth, Color color) {
+		cells.add(new Cell(node, false, node.getSize(), color, bounds));
+
+		if ((depth >= MAX_DEPTH) || (bounds.width < MIN_SIZE) || (bounds.height < MIN_SIZE)) {
+			return;
+		}
+
+		// Keep a margin around the content & room for the label if possible
+		final int header = (bounds.height >= 3 * MIN_SIZE) ? getFontMetrics(getFont()).getHeight() : 2;
+
+		final Rectangle content = new Rectangle(bounds.x + 2, bounds.y + header, bounds.width - 4, bounds.height
+				- header - 2);
+
+		final List<Item> items = new ArrayList<>();
+
+		long total = 0;
+
+		for (DiskUsageScan.Node child : node.getChildren()) {
+			final long size = child.getSize();
+
+			if (size > 0) {
+				items.add(new Item(child, false, size));
+
+				total += size;
+			}
+		}
+
+		if (node.getOwnSize() > 0) {
+			// The files are drawn after the largest directories
+			final Item files = new Item(node, true, node.getOwnSize());
+
+			int index = 0;
+
+			while ((index < items.size()) && (items.get(index).size >= files.size)) {
+				index++;
+			}
+
+			items.add(index, files);
+
+			total += files.size;
+		}
+
+		if ((total == 0) || (content.width <= 0) || (content.height <= 0)) {
+			return;
+		}
+
+		// Ignore the items too small to be seen (sorted by decreasing size)
+		final double scale = (double) content.width * content.height / total;
+
+		int count = 0;
+
+		while ((count < items.size()) && (items.get(count).size * scale >= MIN_AREA)) {
+			items.get(count).area = items.get(count).size * scale;
+
+			count++;
+		}
+
+		final List<Rectangle> rectangles = squarify(items.subList(0, count), content);
+
+		for (int i = 0; i < rectangles.size(); i++) {
+			final Item item = items.get(i);
+			final Rectangle rectangle = rectangles.get(i);
+
+			if (item.files) {
+				cells.add(new Cell(item.node, true, item.size, FILES_COLOR, rectangle));
+			} else {
+				add(cells, item.node, rectangle, depth + 1, getColor(color, depth, i));
+			}
+		}
+	}
+
+	/**
+	 * Returns the color of the i-th child of a directory drawn with the given
+	 * color. The children of the root get distinct hues, their descendants
+	 * get darker shades of the same hue.
+	 */
+	private static Color getColor(Color parent, int depth, int index) {
+		if (depth == 0) {
+			return Color.getHSBColor((index * 0.13f) % 1f, 0.35f, 0.95f);
+		}
+
+		final float[] hsb = Color.RGBtoHSB(parent.getRed(), parent.getGreen(), parent.getBlue(), null);
+
+		return Color.getHSBColor(hsb[0], Math.min(1f, hsb[1] + 0.08f), Math.max(0.4f, hsb[2] - 0.07f));
+	}
+
+	/**
+	 * Lays out the given items (sorted by decreasing area) inside the given
+	 * bounds with the squarified algorithm: the items are added to a row
+	 * along the shortest side as long as this improves the worst aspect ratio
+	 * of the row.
+	 *
+	 * @return the rectangles of the items (in the same order).
+	 */
+	private static List<Rectangle> squarify(List<Item> items, Rectangle bounds) {
+		final List<Rectangle> result = new ArrayList<>(items.size());
+
+		// The remaining free space (in double precision to avoid the rounding
+		// errors accumulating)
+		double x = bounds.x, y = bounds.y, width = bounds.width, height = bounds.height;
+
+		int start = 0;
+
+		while (start < items.size()) {
+			final double side = Math.min(width, height);
+
+			// Grow the row while the worst aspect ratio improves
+			int end = start + 1;
+			double sum = items.get(start).area;
+
+			while (end < items.size()) {
+				final double area = items.get(end).area;
+
+				if (worst(items, start, end + 1, sum + area, side) > worst(items, start, end, sum, side)) {
+					break;
+				}
+
+				sum += area;
+				end++;
+			}
+
+			// Lay out the row along the shortest side
+			final double thickness = (side > 0) ? sum / side : 0;
+
+			double offset = 0;
+
+			for (int i = start; i < end; i++) {
+				final double length = (thickness > 0) ? items.get(i).area / thickness : 0;
+
+				if (width >= height) {
+					// Vertical row on the left
+					result.add(round(x, y + offset, thickness, length));
+				} else {
+					// Horizontal row on the top
+					result.add(round(x + offset, y, length, thickness));
+				}
+
+				offset += length;
+			}
+
+			if (width >= height) {
+				x += thickness;
+				width -= thickness;
+			} else {
+				y += thickness;
+				height -= thickness;
+			}
+
+			start = end;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the worst aspect ratio of the row made of the items in [start,
+	 * end) whose areas sum to the given value.
+	 */
+	private static double worst(List<Item> items, int start, int end, double sum, double side) {
+		// The items are sorted by decreasing area
+		final double max = items.get(start).area, min = items.get(end - 1).area;
+
+		final double side2 = side * side, sum2 = sum * sum;
+
+		return Math.max(side2 * max / sum2, sum2 / (side2 * min));
+	}
+
+	private static Rectangle round(double x, double y, double width, double height) {
+		final int x1 = (int) Math.round(x), y1 = (int) Math.round(y);
+
+		return new Rectangle(x1, y1, (int) Math.round(x + width) - x1, (int) Math.round(y + height) - y1);
+	}
+
+	/**
+	 * Returns the deepest cell at the given location or null.
+	 */
+	private Cell getCellAt(int x, int y) {
+		final List<Cell> cells = this.cells;
+
+		for (int i = cells.size() - 1; i >= 0; i--) {
+			if (cells.get(i).bounds.contains(x, y)) {
+				return cells.get(i);
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public String getToolTipText(MouseEvent event) {
+		final Cell cell = getCellAt(event.getX(), event.getY());
+
+		if (cell == null) {
+			return null;
+		}
+
+		return String.format("%s: %d files, %s", cell.node.getFile().getAbsolutePath(), cell.files ? cell.node
+				.getOwnFiles() : cell.node.getFiles(), FileUtils.byteCountToDisplaySize(cell.size));
+	}
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		g.setColor(getBackground() != null ? getBackground() : Color.WHITE);
+		g.fillRect(0, 0, getWidth(), getHeight());
+
+		final FontMetrics metrics = g.getFontMetrics(getFont());
+
+		g.setFont(getFont());
+
+		for (Cell cell : cells) {
+			final Rectangle bounds = cell.bounds;
+
+			if (!g.hitClip(bounds.x, bounds.y, bounds.width, bounds.height)) {
+				continue;
+			}
+
+			g.setColor(cell.color);
+			g.fillRect(bounds.x, bounds.y, bounds.width, bounds.height);
+			g.setColor(cell.color.darker());
+			g.drawRect(bounds.x, bounds.y, bounds.width - 1, bounds.height - 1);
+
+			if ((bounds.height >= metrics.getHeight() + 2) && (bounds.width >= 3 * MIN_SIZE)) {
+				final String label = String.format("%s (%s)", cell.getLabel(),
+						FileUtils.byteCountToDisplaySize(cell.size));
+
+				final Graphics clip = g.create(bounds.x + 2, bounds.y, bounds.width - 4, bounds.height);
+
+				try {
+					clip.setColor(Color.BLACK);
+					clip.drawString(label, 0, metrics.getAscent());
+				} finally {
+					clip.dispose();
+				}
+			}
+		}
+	}
+}
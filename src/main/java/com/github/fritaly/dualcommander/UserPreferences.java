@@ -34,15 +34,40 @@ public final class UserPreferences {
 	 */
 	public static final String PROPERTY_SHOW_HIDDEN = "show.hidden";
 
+	/**
+	 * The name associated to the {@link #showFolderSizes} property.
+	 */
+	public static final String PROPERTY_SHOW_FOLDER_SIZES = "show.folder.sizes";
+
 	public static final String PROPERTY_EDIT_FILE_COMMAND = "commands.edit.file";
 
 	public static final String PROPERTY_VIEW_FILE_COMMAND = "commands.view.file";
 
+	public static final String PROPERTY_HIBERNATION_DELAY = "tabs.hibernation.delay";
+
+	public static final String PROPERTY_HIBERNATION_BUDGET = "tabs.hibernation.budget";
+
+	/**
+	 * The default value of the {@link #hibernationDelay} property.
+	 */
+	public static final int DEFAULT_HIBERNATION_DELAY = 10;
+
+	/**
+	 * The default value of the {@link #hibernationBudget} property.
+	 */
+	public static final int DEFAULT_HIBERNATION_BUDGET = 64;
+
 	/**
 	 * Whether hidden directories and files should be shown.
 	 */
 	private boolean showHidden = false;
 
+	/**
+	 * Whether the recursive sizes of the directories should be computed and
+	 * displayed.
+	 */
+	private boolean showFolderSizes = false;
+
 	/**
 	 * The command line for editing a file with an external process.
 	 */
@@ -53,6 +78,18 @@ public final class UserPreferences {
 	 */
 	private String viewFileCommand = "open";
 
+	/**
+	 * The delay (in minutes) after which an inactive tab is hibernated (0 to
+	 * never hibernate tabs based on their age).
+	 */
+	private int hibernationDelay = DEFAULT_HIBERNATION_DELAY;
+
+	/**
+	 * The memory (in MB) the inactive tabs can use before the least recently
+	 * used ones are hibernated (0 to hibernate all the inactive tabs).
+	 */
+	private int hibernationBudget = DEFAULT_HIBERNATION_BUDGET;
+
 	/**
 	 * Whether the object state has been initialized.
 	 */
@@ -66,8 +103,11 @@ public final class UserPreferences {
 		Validate.notNull(preferences, "The given user preferences is null");
 
 		this.showHidden = preferences.isShowHidden();
+		this.showFolderSizes = preferences.isShowFolderSizes();
 		this.editFileCommand = preferences.getEditFileCommand();
 		this.viewFileCommand = preferences.getViewFileCommand();
+		this.hibernationDelay = preferences.getHibernationDelay();
+		this.hibernationBudget = preferences.getHibernationBudget();
 
 		// The user preferences can be initialized only once
 		this.initialized = true;
@@ -77,8 +117,11 @@ public final class UserPreferences {
 		Validate.notNull(preferences, "The given user preferences is null");
 
 		setShowHidden(preferences.isShowHidden());
+		setShowFolderSizes(preferences.isShowFolderSizes());
 		setEditFileCommand(preferences.getEditFileCommand());
 		setViewFileCommand(preferences.getViewFileCommand());
+		setHibernationDelay(preferences.getHibernationDelay());
+		setHibernationBudget(preferences.getHibernationBudget());
 	}
 
 	private void assertInitialized() {
@@ -111,8 +154,11 @@ public final class UserPreferences {
 		Validate.notNull(preferences, "The given preferences is null");
 
 		this.showHidden = preferences.getBoolean(PROPERTY_SHOW_HIDDEN, false);
+		this.showFolderSizes = preferences.getBoolean(PROPERTY_SHOW_FOLDER_SIZES, false);
 		this.editFileCommand = preferences.get(PROPERTY_EDIT_FILE_COMMAND, "edit");
 		this.viewFileCommand = preferences.get(PROPERTY_VIEW_FILE_COMMAND, "open");
+		this.hibernationDelay = Math.max(0, preferences.getInt(PROPERTY_HIBERNATION_DELAY, DEFAULT_HIBERNATION_DELAY));
+		this.hibernationBudget = Math.max(0, preferences.getInt(PROPERTY_HIBERNATION_BUDGET, DEFAULT_HIBERNATION_BUDGET));
 
 		// The user preferences can be initialized only once
 		this.initialized = true;
@@ -128,8 +174,11 @@ public final class UserPreferences {
 		Validate.notNull(preferences, "The given preferences is null");
 
 		preferences.putBoolean(PROPERTY_SHOW_HIDDEN, this.showHidden);
+		preferences.putBoolean(PROPERTY_SHOW_FOLDER_SIZES, this.showFolderSizes);
 		preferences.put(PROPERTY_EDIT_FILE_COMMAND, this.editFileCommand);
 		preferences.put(PROPERTY_VIEW_FILE_COMMAND, this.viewFileCommand);
+		preferences.putInt(PROPERTY_HIBERNATION_DELAY, this.hibernationDelay);
+		preferences.putInt(PROPERTY_HIBERNATION_BUDGET, this.hibernationBudget);
 
 		if (logger.isInfoEnabled()) {
 			logger.info("Saved user preferences");
@@ -166,6 +215,36 @@ public final class UserPreferences {
 		this.viewFileCommand = command;
 	}
 
+	public int getHibernationDelay() {
+		assertInitialized();
+
+		return hibernationDelay;
+	}
+
+	public void setHibernationDelay(int delay) {
+		Validate.isTrue(delay >= 0, String.format("Invalid hibernation delay: %d", delay));
+
+		assertInitialized();
+
+		// No need to notify listeners (the value is read periodically)
+		this.hibernationDelay = delay;
+	}
+
+	public int getHibernationBudget() {
+		assertInitialized();
+
+		return hibernationBudget;
+	}
+
+	public void setHibernationBudget(int budget) {
+		Validate.isTrue(budget >= 0, String.format("Invalid hibernation budget: %d", budget));
+
+		assertInitialized();
+
+		// No need to notify listeners (the value is read periodically)
+		this.hibernationBudget = budget;
+	}
+
 	public boolean isShowHidden() {
 		assertInitialized();
 
@@ -183,4 +262,22 @@ public final class UserPreferences {
 			this.changeSupport.firePropertyChange(PROPERTY_SHOW_HIDDEN, oldValue, showHidden);
 		}
 	}
-}
\ No newline at end of file
+
+	public boolean isShowFolderSizes() {
+		assertInitialized();
+
+		return showFolderSizes;
+	}
+
+	public void setShowFolderSizes(boolean showFolderSizes) {
+		assertInitialized();
+
+		final boolean oldValue = this.showFolderSizes;
+
+		this.showFolderSizes = showFolderSizes;
+
+		if (oldValue != showFolderSizes) {
+			this.changeSupport.firePropertyChange(PROPERTY_SHOW_FOLDER_SIZES, oldValue, showFolderSizes);
+		}
+	}
+}
@@ -22,12 +22,16 @@ import java.awt.event.ActionListener;
 import javax.swing.JCheckBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
 import net.miginfocom.swing.MigLayout;
 
 import org.apache.commons.lang.Validate;
 
-public class UserPreferencesPanel extends JPanel implements ActionListener {
+public class UserPreferencesPanel extends JPanel implements ActionListener, ChangeListener {
 
 	private static final long serialVersionUID = 1506904372797766997L;
 
@@ -35,25 +39,57 @@ public class UserPreferencesPanel extends JPanel implements ActionListener {
 
 	private final JCheckBox checkBox = new JCheckBox();
 
+	private final JCheckBox folderSizesCheckBox = new JCheckBox();
+
+	private final JSpinner hibernationDelaySpinner;
+
+	private final JSpinner hibernationBudgetSpinner;
+
 	public UserPreferencesPanel(UserPreferences preferences) {
 		Validate.notNull(preferences, "The given user preferencs is null");
 
 		// Defensive recopy
 		this.preferences = new UserPreferences(preferences);
 
-		setLayout(new MigLayout("", "[][]", "[]"));
+		setLayout(new MigLayout("", "[][]", "[][][][]"));
+
+		this.hibernationDelaySpinner = new JSpinner(new SpinnerNumberModel(preferences.getHibernationDelay(), 0, 24 * 60, 1));
+		this.hibernationBudgetSpinner = new JSpinner(new SpinnerNumberModel(preferences.getHibernationBudget(), 0, 4096, 16));
 
 		add(new JLabel("Show hidden files ?"));
-		add(checkBox);
+		add(checkBox, "wrap");
+		add(new JLabel("Compute folder sizes ?"));
+		add(folderSizesCheckBox, "wrap");
+		add(new JLabel("Hibernate inactive tabs after (minutes, 0 = never)"));
+		add(hibernationDelaySpinner, "wrap");
+		add(new JLabel("Memory budget of inactive tabs (MB)"));
+		add(hibernationBudgetSpinner);
 
 		checkBox.setSelected(preferences.isShowHidden());
 		checkBox.addActionListener(this);
+
+		folderSizesCheckBox.setSelected(preferences.isShowFolderSizes());
+		folderSizesCheckBox.addActionListener(this);
+
+		hibernationDelaySpinner.addChangeListener(this);
+		hibernationBudgetSpinner.addChangeListener(this);
 	}
 
 	@Override
 	public void actionPerformed(ActionEvent e) {
 		if (e.getSource() == checkBox) {
 			preferences.setShowHidden(!preferences.isShowHidden());
+		} else if (e.getSource() == folderSizesCheckBox) {
+			preferences.setShowFolderSizes(!preferences.isShowFolderSizes());
+		}
+	}
+
+	@Override
+	public void stateChanged(ChangeEvent e) {
+		if (e.getSource() == hibernationDelaySpinner) {
+			preferences.setHibernationDelay((Integer) hibernationDelaySpinner.getValue());
+		} else if (e.getSource() == hibernationBudgetSpinner) {
+			preferences.setHibernationBudget((Integer) hibernationBudgetSpinner.getValue());
 		}
 	}
 
@@ -28,10 +28,11 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
@@ -99,25 +100,40 @@ public class Utils {
 	 * @param handler
 	 *            a possible listener to be notified of file deletions. Can be
 	 *            null.
+	 * @return the walker which deleted the entries (reports the entries
+	 *         deleted and the errors).
 	 */
-	public static void deleteRecursively(File file, FileHandler handler) {
+	public static TreeWalker deleteRecursively(File file, final FileHandler handler) {
 		// The given file can be a file or a directory
 		// The given listener can be null
 		Validate.notNull(file, "The given file is null");
 
-		if (file.isDirectory()) {
-			// Delete the directory recursively
-			for (File entry : file.listFiles()) {
-				deleteRecursively(entry, handler);
+		// Never follow the symbolic links (the entries they point to must not
+		// be deleted) and delete every hard link
+		final TreeWalker walker = new TreeWalker(false, false) {
+			@Override
+			protected void fileVisited(Path path, BasicFileAttributes attrs) throws IOException {
+				delete(path);
+			}
+
+			@Override
+			protected void directoryVisited(Path dir) throws IOException {
+				// Delete the (empty) directory
+				delete(dir);
 			}
-		}
 
-		// Delete the file or the empty directory
-		file.delete();
+			private void delete(Path path) throws IOException {
+				Files.deleteIfExists(path);
 
-		if (handler != null) {
-			handler.handle(file);
-		}
+				if (handler != null) {
+					handler.handle(path.toFile());
+				}
+			}
+		};
+
+		walker.walk(file.toPath());
+
+		return walker;
 	}
 
 	public static Color getDefaultBackgroundColor() {
@@ -344,24 +360,4 @@ public class Utils {
 
     	return new Font(font.getName(), font.getStyle() | Font.BOLD, font.getSize());
     }
-
-    public static Scan scan(Collection<File> collection) {
-    	Validate.notNull(collection, "The given collection of files is null");
-
-    	final Scan scan = new Scan();
-
-    	for (File element : collection) {
-			if (element.isFile()) {
-				scan.visitFile(element);
-			} else {
-				try {
-					Files.walkFileTree(element.toPath(), scan);
-				} catch (IOException e) {
-					throw new RuntimeException("Error when walking directory '" + element + "'", e);
-				}
-			}
-		}
-
-    	return scan;
-    }
 }
\ No newline at end of file
@@ -16,40 +16,32 @@
  */
 package com.github.fritaly.dualcommander.event;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
-import org.apache.commons.lang.Validate;
-
-public final class ChangeEventSupport implements ChangeEventSource {
-
-	private final List<ChangeListener> listeners = new ArrayList<>();
+/**
+ * Event bus delivering {@link ChangeEvent}s. A change event carries no state
+ * so the events of a source are simply collapsed into one.
+ *
+ * @author francois_ritaly
+ */
+public final class ChangeEventBus extends EventBus<ChangeListener, ChangeEvent> implements ChangeEventSource {
 
-	public ChangeEventSupport() {
+	public ChangeEventBus() {
 	}
 
 	@Override
 	public void addChangeListener(ChangeListener listener) {
-		Validate.notNull(listener, "The given listener is null");
-
-		this.listeners.add(listener);
+		addListener(listener);
 	}
 
 	@Override
 	public void removeChangeListener(ChangeListener listener) {
-		Validate.notNull(listener, "The given listener is null");
-
-		this.listeners.remove(listener);
+		removeListener(listener);
 	}
 
-	public void fireEvent(ChangeEvent event) {
-		Validate.notNull(event, "The given event is null");
-
-		for (ChangeListener listener : listeners) {
-			listener.stateChanged(event);
-		}
+	@Override
+	protected void deliver(ChangeListener listener, ChangeEvent event) {
+		listener.stateChanged(event);
 	}
 }
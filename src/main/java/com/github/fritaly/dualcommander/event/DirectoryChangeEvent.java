@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander.event;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.EventObject;
+import java.util.Set;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Event notifying that some entries of a directory were created, modified or
+ * deleted.
+ *
+ * @author francois_ritaly
+ */
+public class DirectoryChangeEvent extends EventObject {
+
+	private static final long serialVersionUID = -6160993604426706433L;
+
+	private final File directory;
+
+	private final Set<String> names;
+
+	private final boolean overflow;
+
+	public DirectoryChangeEvent(Object source, File directory, Set<String> names, boolean overflow) {
+		super(source);
+
+		Validate.notNull(directory, "The given directory is null");
+		Validate.notNull(names, "The given set of names is null");
+
+		this.directory = directory;
+		this.names = Collections.unmodifiableSet(names);
+		this.overflow = overflow;
+	}
+
+	/**
+	 * Returns the directory whose entries changed.
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Returns the names of the entries created, modified or deleted.
+	 */
+	public Set<String> getNames() {
+		return names;
+	}
+
+	/**
+	 * Tells whether some changes were lost, in which case the whole directory
+	 * must be listed again.
+	 */
+	public boolean isOverflow() {
+		return overflow;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%s, %d change(s), overflow=%b]", getClass().getSimpleName(), directory, names.size(),
+				overflow);
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander.event;
+
+import java.util.ArrayList;
+import java.util.EventListener;
+import java.util.EventObject;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.swing.SwingUtilities;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Delivers the events published by any thread to the registered listeners on
+ * the EDT. The events published before the EDT gets to deliver them (typically
+ * within the same frame) are coalesced per source: only one event per source
+ * is delivered (see {@link #coalesce(EventObject, EventObject)}). The bus also
+ * measures the latency between the publication and the delivery of the events.
+ * <p>
+ * This class is thread-safe. The listeners are always notified on the EDT.
+ *
+ * @author francois_ritaly
+ */
+public abstract class EventBus<L extends EventListener, E extends EventObject> {
+
+	/**
+	 * An event waiting for its delivery.
+	 */
+	private final class Pending {
+
+		private E event;
+
+		/**
+		 * The date (in ns) the first event coalesced into this one was
+		 * published.
+		 */
+		private final long publishTime = System.nanoTime();
+
+		Pending(E event) {
+			this.event = event;
+		}
+	}
+
+	private final List<L> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * The events waiting for their delivery, keyed by source (in order of
+	 * publication). Guarded by this.
+	 */
+	private Map<Object, Pending> pending = new LinkedHashMap<>();
+
+	private final Runnable dispatcher = new Runnable() {
+		@Override
+		public void run() {
+			dispatch();
+		}
+	};
+
+	private long publishedCount, deliveredCount, coalescedCount;
+
+	/**
+	 * The total & maximum latencies (in ns) of the events delivered.
+	 */
+	private long totalLatency, maxLatency;
+
+	public final void addListener(L listener) {
+		Validate.notNull(listener, "The given listener is null");
+
+		this.listeners.add(listener);
+	}
+
+	public final void removeListener(L listener) {
+		Validate.notNull(listener, "The given listener is null");
+
+		this.listeners.remove(listener);
+	}
+
+	/**
+	 * Publishes the given event. Can be called from any thread, the event will
+	 * be delivered on the EDT (possibly coalesced with the other events of the
+	 * same source published in the mean time).
+	 *
+	 * @param event
+	 *            the event to publish. Can't be null.
+	 */
+	public final void publish(E event) {
+		Validate.notNull(event, "The given event is null");
+
+		final boolean schedule;
+
+		synchronized (this) {
+			publishedCount++;
+
+			// Schedule the delivery when the 1st event is queued
+			schedule = pending.isEmpty();
+
+			final Pending previous = pending.get(event.getSource());
+
+			if (previous != null) {
+				previous.event = coalesce(previous.event, event);
+
+				coalescedCount++;
+			} else {
+				pending.put(event.getSource(), new Pending(event));
+			}
+		}
+
+		if (schedule) {
+			SwingUtilities.invokeLater(dispatcher);
+		}
+	}
+
+	private void dispatch() {
+		final List<Pending> events;
+
+		synchronized (this) {
+			events = new ArrayList<>(pending.values());
+
+			// The events published from now on will be delivered next time
+			this.pending = new LinkedHashMap<>();
+		}
+
+		for (Pending element : events) {
+			final long latency = System.nanoTime() - element.publishTime;
+
+			for (L listener : listeners) {
+				deliver(listener, element.event);
+			}
+
+			synchronized (this) {
+				deliveredCount++;
+				totalLatency += latency;
+				maxLatency = Math.max(maxLatency, latency);
+			}
+		}
+	}
+
+	/**
+	 * Merges the given events (published by the same source) into one.
+	 * Returns the latest event by default.
+	 *
+	 * @param previous
+	 *            the event waiting for its delivery.
+	 * @param event
+	 *            the event just published.
+	 * @return the event to deliver instead.
+	 */
+	protected E coalesce(E previous, E event) {
+		return event;
+	}
+
+	/**
+	 * Delivers the given event to the given listener. Called on the EDT.
+	 */
+	protected abstract void deliver(L listener, E event);
+
+	public synchronized long getPublishedCount() {
+		return publishedCount;
+	}
+
+	public synchronized long getDeliveredCount() {
+		return deliveredCount;
+	}
+
+	public synchronized long getCoalescedCount() {
+		return coalescedCount;
+	}
+
+	/**
+	 * Returns the average latency (in ms) between the publication and the
+	 * delivery of the events.
+	 *
+	 * @return a positive double.
+	 */
+	public synchronized double getAverageLatency() {
+		return (deliveredCount == 0) ? 0 : (totalLatency / 1000000.0d) / deliveredCount;
+	}
+
+	/**
+	 * Returns the maximum latency (in ms) between the publication and the
+	 * delivery of an event.
+	 *
+	 * @return a positive double.
+	 */
+	public synchronized double getMaxLatency() {
+		return maxLatency / 1000000.0d;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%s[published=%d, delivered=%d, coalesced=%d, avgLatency=%.2f ms, maxLatency=%.2f ms]",
+				getClass().getSimpleName(), publishedCount, deliveredCount, coalescedCount, getAverageLatency(),
+				getMaxLatency());
+	}
+}
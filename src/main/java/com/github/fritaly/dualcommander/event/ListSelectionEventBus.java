@@ -16,40 +16,39 @@
  */
 package com.github.fritaly.dualcommander.event;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 
-import org.apache.commons.lang.Validate;
-
-public final class ListSelectionEventSupport implements ListSelectionEventSource {
-
-	private final List<ListSelectionListener> listeners = new ArrayList<>();
+/**
+ * Event bus delivering {@link ListSelectionEvent}s. The events of a source are
+ * coalesced into one covering the union of their ranges of indices.
+ *
+ * @author francois_ritaly
+ */
+public final class ListSelectionEventBus extends EventBus<ListSelectionListener, ListSelectionEvent> implements
+		ListSelectionEventSource {
 
-	public ListSelectionEventSupport() {
+	public ListSelectionEventBus() {
 	}
 
 	@Override
 	public void addListSelectionListener(ListSelectionListener listener) {
-		Validate.notNull(listener, "The given listener is null");
-
-		this.listeners.add(listener);
+		addListener(listener);
 	}
 
 	@Override
 	public void removeListSelectionListener(ListSelectionListener listener) {
-		Validate.notNull(listener, "The given listener is null");
-
-		this.listeners.remove(listener);
+		removeListener(listener);
 	}
 
-	public void fireEvent(ListSelectionEvent event) {
-		Validate.notNull(event, "The given event is null");
+	@Override
+	protected ListSelectionEvent coalesce(ListSelectionEvent previous, ListSelectionEvent event) {
+		return new ListSelectionEvent(event.getSource(), Math.min(previous.getFirstIndex(), event.getFirstIndex()),
+				Math.max(previous.getLastIndex(), event.getLastIndex()), event.getValueIsAdjusting());
+	}
 
-		for (ListSelectionListener listener : listeners) {
-			listener.valueChanged(event);
-		}
+	@Override
+	protected void deliver(ListSelectionListener listener, ListSelectionEvent event) {
+		listener.valueChanged(event);
 	}
 }
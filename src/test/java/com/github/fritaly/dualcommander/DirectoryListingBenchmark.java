@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Measures the memory used per entry by a {@link DirectoryListing} (plus its
+ * display order) against the former representation of a listing (one object
+ * per entry holding its own {@link File} and name). The measure is the heap
+ * delta after garbage collection, hence approximate.
+ * <p>
+ * Usage: <code>DirectoryListingBenchmark [entry count]</code>
+ *
+ * @author francois_ritaly
+ */
+public final class DirectoryListingBenchmark {
+
+	private static final Logger logger = Logger.getLogger(DirectoryListingBenchmark.class);
+
+	private static final File DIRECTORY = new File("/home/user/pictures/2014");
+
+	private static final int DEFAULT_ENTRY_COUNT = 200000;
+
+	/**
+	 * Replica of the former entry of a listing.
+	 */
+	private static final class LegacyEntry {
+
+		private final File file;
+
+		private final String name;
+
+		private final boolean directory;
+
+		private final long size;
+
+		private final long lastModified;
+
+		private final boolean hidden;
+
+		LegacyEntry(File file, boolean directory, long size, long lastModified, boolean hidden) {
+			this.file = file;
+			this.name = file.getName();
+			this.directory = directory;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.hidden = hidden;
+		}
+	}
+
+	private final int entryCount;
+
+	/**
+	 * The objects measured (referenced to prevent their collection).
+	 */
+	private Object retained;
+
+	private DirectoryListingBenchmark(int entryCount) {
+		this.entryCount = entryCount;
+	}
+
+	private static String getName(int index) {
+		return String.format("IMG_%06d.jpg", index);
+	}
+
+	private static long getUsedMemory() throws InterruptedException {
+		final Runtime runtime = Runtime.getRuntime();
+
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private long measureLegacy() throws InterruptedException {
+		final long before = getUsedMemory();
+
+		final List<LegacyEntry> entries = new ArrayList<>(entryCount);
+
+		for (int i = 0; i < entryCount; i++) {
+			entries.add(new LegacyEntry(new File(DIRECTORY, getName(i)), false, 1000 + i, 1400000000000L + i, false));
+		}
+
+		this.retained = entries;
+
+		final long used = getUsedMemory() - before;
+
+		this.retained = null;
+
+		return used / entryCount;
+	}
+
+	private long measureListing() throws InterruptedException {
+		final long before = getUsedMemory();
+
+		final DirectoryListing listing = new DirectoryListing(DIRECTORY);
+
+		for (int i = 0; i < entryCount; i++) {
+			listing.add(getName(i), false, 1000 + i, 1400000000000L + i, false);
+		}
+
+		listing.trimToSize();
+
+		// The display order is part of the cost of a listing
+		final int[] order = FileSorter.sort(listing, SortCriteria.NATURAL_NAME.getSortOrder(), true);
+
+		this.retained = new Object[] { listing, order };
+
+		final long used = getUsedMemory() - before;
+
+		this.retained = null;
+
+		return used / entryCount;
+	}
+
+	public static void main(String[] args) throws Exception {
+		final int entryCount = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_ENTRY_COUNT;
+
+		final DirectoryListingBenchmark benchmark = new DirectoryListingBenchmark(entryCount);
+
+		final long legacy = benchmark.measureLegacy();
+		final long current = benchmark.measureListing();
+
+		logger.info(String.format("Bytes per entry (%d entries): %d before, %d after", entryCount, legacy, current));
+	}
+}
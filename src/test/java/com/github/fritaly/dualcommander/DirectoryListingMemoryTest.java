@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+/**
+ * Tests the estimation of the memory used by a {@link DirectoryListing} (see
+ * {@link DirectoryListingBenchmark} for a measure of the actual heap usage).
+ *
+ * @author francois_ritaly
+ */
+public class DirectoryListingMemoryTest {
+
+	private static final File DIRECTORY = new File("/home/user/pictures/2014");
+
+	private static final int ENTRY_COUNT = 100000;
+
+	/**
+	 * The length of the names generated.
+	 */
+	private static final int NAME_LENGTH = 14;
+
+	private static String getName(int index) {
+		return String.format("IMG_%06d.jpg", index);
+	}
+
+	private static DirectoryListing createListing(boolean directories) {
+		final DirectoryListing listing = new DirectoryListing(DIRECTORY);
+
+		for (int i = 0; i < ENTRY_COUNT; i++) {
+			listing.add(getName(i), directories, 1000 + i, 1400000000000L + i, false);
+		}
+
+		return listing;
+	}
+
+	@Test
+	public void testBytesPerEntry() {
+		final DirectoryListing listing = createListing(false);
+		listing.trimToSize();
+
+		// The name's characters, its offset, the size, the date and the flags
+		final long expected = 2 * NAME_LENGTH + 4 + 8 + 8 + 1;
+		final long actual = listing.getMemoryUsage() / ENTRY_COUNT;
+
+		assertTrue(String.format("Unexpected memory usage: %d bytes per entry", actual), actual <= expected);
+	}
+
+	@Test
+	public void testTrimToSize() {
+		final DirectoryListing listing = createListing(false);
+
+		final long before = listing.getMemoryUsage();
+
+		listing.trimToSize();
+
+		assertTrue(listing.getMemoryUsage() < before);
+	}
+
+	@Test
+	public void testComputedSizes() {
+		final DirectoryListing listing = createListing(true);
+		listing.trimToSize();
+
+		final long before = listing.getMemoryUsage();
+
+		for (int i = 0; i < ENTRY_COUNT; i++) {
+			listing.setDirectorySize(i, 1024);
+		}
+
+		// The flags of the computed sizes are stored in their own bit set
+		assertTrue(listing.getMemoryUsage() >= before + ENTRY_COUNT / 8);
+	}
+}
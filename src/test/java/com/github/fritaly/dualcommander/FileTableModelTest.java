@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the sort of a {@link FileTableModel} after its rows were modified.
+ *
+ * @author francois_ritaly
+ */
+public class FileTableModelTest {
+
+	private static final File DIRECTORY = new File("/tmp/dir");
+
+	private FileTableModel model;
+
+	@Before
+	public void setUp() {
+		this.model = new FileTableModel(new HasParentDirectory() {
+			@Override
+			public File getParentDirectory() {
+				return null;
+			}
+		});
+
+		final DirectoryListing listing = new DirectoryListing(DIRECTORY);
+		listing.add("b.txt", false, 20, 2000, false);
+		listing.add("d.txt", false, 40, 4000, false);
+		listing.add("a.txt", false, 10, 1000, false);
+		listing.add("c.txt", false, 30, 3000, false);
+
+		model.setListing(listing, FileSorter.sort(listing, model.getSortOrder(), model.isSortAscending()));
+	}
+
+	private List<String> getNames() {
+		final List<String> names = new ArrayList<>();
+
+		for (int i = 0; i < model.getRowCount(); i++) {
+			names.add(model.getEntryAt(i).getName());
+		}
+
+		return names;
+	}
+
+	@Test
+	public void testSortAfterRemove() {
+		assertEquals(Arrays.asList("a.txt", "b.txt", "c.txt", "d.txt"), getNames());
+
+		model.removeRow(model.indexOf(new File(DIRECTORY, "b.txt")));
+		model.sort();
+
+		assertEquals(Arrays.asList("a.txt", "c.txt", "d.txt"), getNames());
+
+		model.setSortCriteria(SortCriteria.SIZE);
+
+		assertEquals(Arrays.asList("a.txt", "c.txt", "d.txt"), getNames());
+	}
+
+	@Test
+	public void testSortAfterModify() {
+		// Modify the entry "b.txt" (removed & inserted again with a new size)
+		final DirectoryListing changes = new DirectoryListing(DIRECTORY);
+		changes.add("b.txt", false, 50, 5000, false);
+
+		model.removeRow(model.indexOf(new File(DIRECTORY, "b.txt")));
+
+		assertEquals(1, model.insertEntry(changes.getEntry(0)));
+
+		model.sort();
+
+		assertEquals(Arrays.asList("a.txt", "b.txt", "c.txt", "d.txt"), getNames());
+
+		model.setSortCriteria(SortCriteria.SIZE);
+
+		assertEquals(Arrays.asList("a.txt", "c.txt", "d.txt", "b.txt"), getNames());
+		assertEquals(50, model.getEntryAt(3).getSize());
+	}
+
+	@Test
+	public void testInsertAfterSort() {
+		model.setSortCriteria(SortCriteria.SIZE);
+
+		final DirectoryListing changes = new DirectoryListing(DIRECTORY);
+		changes.add("e.txt", false, 25, 2500, false);
+
+		assertEquals(2, model.insertEntry(changes.getEntry(0)));
+		assertEquals(Arrays.asList("a.txt", "b.txt", "e.txt", "c.txt", "d.txt"), getNames());
+
+		// Sort in descending order
+		model.setSortCriteria(SortCriteria.SIZE);
+
+		changes.add("f.txt", false, 35, 3500, false);
+
+		assertEquals(1, model.insertEntry(changes.getEntry(1)));
+		assertEquals(Arrays.asList("d.txt", "f.txt", "c.txt", "e.txt", "b.txt", "a.txt"), getNames());
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fritaly.dualcommander;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the natural ordering of names implemented by {@link NaturalKey}.
+ *
+ * @author francois_ritaly
+ */
+public class NaturalKeyTest {
+
+	private static int compare(String name1, String name2) {
+		return new NaturalKey(name1).compareTo(new NaturalKey(name2));
+	}
+
+	@Test
+	public void testNumbers() {
+		assertTrue(compare("file2", "file10") < 0);
+		assertTrue(compare("file10", "file2") > 0);
+		assertEquals(0, compare("file007", "file7"));
+	}
+
+	@Test
+	public void testLargeNumbers() {
+		// 20 digits, more than a long can hold
+		assertTrue(compare("file99999999999999999999", "file100000000000000000000") < 0);
+		assertTrue(compare("file100000000000000000000", "file99999999999999999999") > 0);
+		assertTrue(compare("file12345678901234567890", "file12345678901234567891") < 0);
+		assertTrue(compare("file999999999999999999", "file1000000000000000000") < 0);
+		assertTrue(compare("file1000000000000000000", "file999999999999999999") > 0);
+	}
+
+	@Test
+	public void testLargeNumbersWithLeadingZeros() {
+		assertEquals(0, compare("file0000000000000000000000001", "file1"));
+		assertTrue(compare("file0000000000000000000000009", "file10") < 0);
+		assertTrue(compare("file00000000000000000000000012345678901234567890", "file99999999999999999999") < 0);
+		assertEquals(new NaturalKey("file00012345678901234567890").hashCode(),
+				new NaturalKey("file12345678901234567890").hashCode());
+	}
+
+	@Test
+	public void testNumbersBeforeText() {
+		assertTrue(compare("12345678901234567890", "abc") < 0);
+		assertTrue(compare("abc", "12345678901234567890") > 0);
+	}
+}